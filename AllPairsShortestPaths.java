@@ -0,0 +1,336 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * This is a class that precomputes the shortest path between every pair of towns of a
+ * CompactGraph snapshot, for small and medium maps. It stores an n by n distance matrix
+ * and a next-hop matrix (the first town after i on the way to j), so distances are O(1)
+ * lookups and paths are rebuilt without any search. Next hops are always stored as
+ * 16-bit chars, and distances too whenever they fit. Repeated Dijkstra writes each row
+ * straight into the final storage, so no wider copy of the matrices is ever held.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class AllPairsShortestPaths {
+
+	/**
+	 * Ways to build the matrices
+	 */
+	public enum Method {
+
+		// Floyd-Warshall for dense graphs, repeated Dijkstra for sparse ones
+		AUTO,
+
+		// Blocked Floyd-Warshall, with the independent tiles of each round in parallel
+		FLOYD_WARSHALL,
+
+		// One Dijkstra search per town, in parallel
+		DIJKSTRA
+	}
+
+	// Side of the square tiles processed by blocked Floyd-Warshall
+	private static final int TILE = 64;
+
+	/**
+	 * Largest number of towns TownGraphManager builds matrices for; at this size they take
+	 * 1.6 GB. Larger maps are routed with single-source searches instead.
+	 */
+	public static final int MAX_TOWNS = 20_000;
+
+	// Largest value a narrowed matrix can store; also marks unreachable pairs
+	private static final char NARROW_LIMIT = Character.MAX_VALUE;
+
+	// Sum that stands for "no path" while Floyd-Warshall runs, safe to add twice
+	private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+	private final CompactGraph graph;
+	private final int size;
+	private final Method method;
+
+	// Exactly one of the distance matrices is set. Matrices are indexed by an int, so there
+	// are fewer than 65536 towns and every next hop fits in a char.
+	private int[] distances;
+	private char[] narrowDistances;
+	private char[] nextHops;
+
+	private long buildMillis;
+
+	// Constructor choosing the method from the density of the graph
+	public AllPairsShortestPaths(CompactGraph graph) {
+		this(graph, Method.AUTO);
+	}
+
+	/**
+	 * Computes the matrices for every pair of towns
+	 * @param graph snapshot to precompute
+	 * @param method how to compute them
+	 */
+	public AllPairsShortestPaths(CompactGraph graph, Method method) {
+		long start = System.nanoTime();
+		this.graph = graph;
+		size = graph.size();
+
+		// The matrices are indexed by a single int
+		if((long) size * size > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("too many towns for an all-pairs matrix: " + size);
+
+		// Floyd-Warshall's n^3 beats n Dijkstra searches once roads approach n^2 / log n
+		if(method == Method.AUTO) {
+			double log = Math.max(1, Math.log(size) / Math.log(2));
+			method = graph.roadCount() * log >= (double) size * size / 4 ? Method.FLOYD_WARSHALL : Method.DIJKSTRA;
+		}
+		this.method = method;
+
+		nextHops = new char[size * size];
+		if(method == Method.FLOYD_WARSHALL) {
+			int[] dist = new int[size * size];
+			floydWarshall(dist);
+			narrow(dist);
+		}
+		else {
+			// Fill chars first; only if some distance does not fit are the rows searched again into ints
+			narrowDistances = new char[size * size];
+			if(!repeatedDijkstra()) {
+				narrowDistances = null;
+				distances = new int[size * size];
+				repeatedDijkstra();
+			}
+		}
+		buildMillis = (System.nanoTime() - start) / 1_000_000;
+	}
+
+	// Returns the version of the graph the matrices describe
+	public long getVersion() {
+		return graph.getVersion();
+	}
+
+	// Returns the method used to build the matrices
+	public Method getMethod() {
+		return method;
+	}
+
+	// Returns how long the matrices took to build, in milliseconds
+	public long getBuildMillis() {
+		return buildMillis;
+	}
+
+	// Returns the bytes used by the distance and next-hop matrices
+	public long getMemoryBytes() {
+		long cells = (long) size * size;
+		long distanceBytes = distances != null ? cells * Integer.BYTES : cells * Character.BYTES;
+		return distanceBytes + cells * Character.BYTES;
+	}
+
+	/**
+	 * Returns the length of the shortest path between two towns
+	 * @param sourceVertex starting town
+	 * @param destinationVertex ending town
+	 * @return the distance in miles, or CompactGraph.UNREACHABLE if there is no path
+	 */
+	public int distance(Town sourceVertex, Town destinationVertex) {
+		int source = graph.indexOf(sourceVertex);
+		int target = graph.indexOf(destinationVertex);
+
+		if(source < 0 || target < 0)
+			return CompactGraph.UNREACHABLE;
+		return distance(source, target);
+	}
+
+	// Returns the distance between two town ids, or CompactGraph.UNREACHABLE
+	public int distance(int source, int target) {
+		int cell = source * size + target;
+		if(distances != null)
+			return distances[cell];
+		return narrowDistances[cell] == NARROW_LIMIT ? CompactGraph.UNREACHABLE : narrowDistances[cell];
+	}
+
+	/**
+	 * Rebuilds the shortest path between two towns from the next-hop matrix.
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the path in the same format as Graph.shortestPath, or null if
+	 * there is no path between the towns
+	 */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+		Route route = route(sourceVertex, destinationVertex);
+		return route == null ? null : route.toStrings();
+	}
+
+	/**
+	 * Rebuilds the shortest path between two towns as town and road ids
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the route, or null if there is no path between the towns
+	 */
+	public Route route(Town sourceVertex, Town destinationVertex) {
+		int source = graph.indexOf(sourceVertex);
+		int target = graph.indexOf(destinationVertex);
+
+		if(source < 0 || target < 0 || distance(source, target) == CompactGraph.UNREACHABLE)
+			return null;
+
+		Route.Builder route = new Route.Builder(graph, source);
+		for(int current = source; current != target; ) {
+			int hop = nextHop(current, target);
+			int slot = shortestSlot(current, hop);
+			route.add(graph.roadId(slot), hop, graph.weight(slot));
+			current = hop;
+		}
+
+		return route.build();
+	}
+
+	// Returns the first town after source on the shortest path to target
+	private int nextHop(int source, int target) {
+		return nextHops[source * size + target];
+	}
+
+	// Returns the slot of the shortest road from u to v
+	private int shortestSlot(int u, int v) {
+		int best = -1;
+		for(int slot = graph.firstSlot(u); slot < graph.endSlot(u); slot++) {
+			if(graph.target(slot) == v && (best < 0 || graph.weight(slot) < graph.weight(best)))
+				best = slot;
+		}
+		return best;
+	}
+
+	/**
+	 * Fills the matrices with one Dijkstra search per town, writing each row into the
+	 * distance matrix that is set
+	 * @return false if a distance did not fit the char matrix, which is then incomplete
+	 */
+	private boolean repeatedDijkstra() {
+		ThreadLocal<SearchWorkspace> workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(size));
+		ThreadLocal<int[]> orders = ThreadLocal.withInitial(() -> new int[size]);
+		AtomicBoolean fits = new AtomicBoolean(true);
+
+		IntStream.range(0, size).parallel().forEach(source -> {
+			if(!fits.get())
+				return;
+
+			SearchWorkspace search = workspaces.get();
+			int[] order = orders.get();
+			int settled = 0;
+			int row = source * size;
+
+			if(distances != null)
+				Arrays.fill(distances, row, row + size, CompactGraph.UNREACHABLE);
+			else
+				Arrays.fill(narrowDistances, row, row + size, NARROW_LIMIT);
+
+			search.start(source);
+			while(search.hasNext()) {
+				int u = search.next();
+				int du = search.distance(u);
+				if(distances != null)
+					distances[row + u] = du;
+				else if(du < NARROW_LIMIT)
+					narrowDistances[row + u] = (char) du;
+				else {
+					fits.set(false);
+					return;
+				}
+				order[settled++] = u;
+
+				for(int slot = graph.firstSlot(u); slot < graph.endSlot(u); slot++)
+					search.relax(graph.target(slot), du + graph.weight(slot), slot);
+			}
+
+			// Towns are settled after their parents, so first hops can be inherited in order
+			nextHops[row + source] = (char) source;
+			for(int i = 1; i < settled; i++) {
+				int t = order[i];
+				int parent = graph.townOfSlot(search.previousSlot(t));
+				nextHops[row + t] = parent == source ? (char) t : nextHops[row + parent];
+			}
+		});
+		return fits.get();
+	}
+
+	// Fills the matrices with Floyd-Warshall, one tile of intermediate towns per round
+	private void floydWarshall(int[] dist) {
+		char[] next = nextHops;
+		Arrays.fill(dist, INFINITY);
+
+		for(int u = 0; u < size; u++) {
+			dist[u * size + u] = 0;
+			next[u * size + u] = (char) u;
+			for(int slot = graph.firstSlot(u); slot < graph.endSlot(u); slot++) {
+				int cell = u * size + graph.target(slot);
+				if(graph.weight(slot) < dist[cell]) {
+					dist[cell] = graph.weight(slot);
+					next[cell] = (char) graph.target(slot);
+				}
+			}
+		}
+
+		int tiles = (size + TILE - 1) / TILE;
+		for(int k = 0; k < tiles; k++) {
+			final int round = k;
+
+			// The tile on the diagonal depends only on itself
+			relaxTile(dist, next, k, k, k);
+
+			// Then the rest of its tile row and column
+			IntStream.range(0, tiles).parallel().filter(t -> t != round).forEach(t -> {
+				relaxTile(dist, next, round, t, round);
+				relaxTile(dist, next, t, round, round);
+			});
+
+			// Then every other tile, which only reads the tile row and column
+			IntStream.range(0, tiles * tiles).parallel().forEach(cell -> {
+				int i = cell / tiles;
+				int j = cell % tiles;
+				if(i != round && j != round)
+					relaxTile(dist, next, i, j, round);
+			});
+		}
+
+		for(int cell = 0; cell < dist.length; cell++) {
+			if(dist[cell] >= INFINITY)
+				dist[cell] = CompactGraph.UNREACHABLE;
+		}
+	}
+
+	// Relaxes tile (ti, tj) through the intermediate towns of tile tk
+	private void relaxTile(int[] dist, char[] next, int ti, int tj, int tk) {
+		int iEnd = Math.min(size, (ti + 1) * TILE);
+		int jEnd = Math.min(size, (tj + 1) * TILE);
+		int kEnd = Math.min(size, (tk + 1) * TILE);
+
+		for(int k = tk * TILE; k < kEnd; k++) {
+			for(int i = ti * TILE; i < iEnd; i++) {
+				int ik = dist[i * size + k];
+				if(ik >= INFINITY)
+					continue;
+
+				int row = i * size;
+				int kRow = k * size;
+				for(int j = tj * TILE; j < jEnd; j++) {
+					int alt = ik + dist[kRow + j];
+					if(alt < dist[row + j]) {
+						dist[row + j] = alt;
+						next[row + j] = next[row + k];
+					}
+				}
+			}
+		}
+	}
+
+	// Stores the distances as chars when every value fits, keeping the ints otherwise
+	private void narrow(int[] dist) {
+		for(int d: dist) {
+			if(d != CompactGraph.UNREACHABLE && d >= NARROW_LIMIT) {
+				distances = dist;
+				return;
+			}
+		}
+
+		narrowDistances = new char[dist.length];
+		for(int cell = 0; cell < dist.length; cell++)
+			narrowDistances[cell] = dist[cell] == CompactGraph.UNREACHABLE ? NARROW_LIMIT : (char) dist[cell];
+	}
+}
@@ -0,0 +1,706 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * This is a class that implements an immutable compressed-sparse-row (CSR) snapshot of a Graph.
+ * Towns are numbered 0 to size() - 1 and the roads of town i occupy slots offsets[i] to
+ * offsets[i + 1] - 1 of the targets, weights and roadIds arrays. Every road is stored once
+ * per direction and roadIds point back into the table of road names.
+ *
+ * A snapshot can be saved to a binary file and read back with save and load, so a large
+ * map can be queried right after startup instead of being rebuilt road by road. Files are
+ * streamed through a fixed buffer at long offsets, so they are not limited to 2 GB.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class CompactGraph {
+
+	// Distance reported for towns that cannot be reached
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	// "TGSN" at the start of every snapshot file
+	private static final int MAGIC = 0x4E534754;
+
+	// Layout of snapshot files written by save; bumped whenever the layout changes
+	private static final int FORMAT_VERSION = 2;
+
+	// Magic, format version, graph version, town, road and slot counts, reserved
+	private static final int HEADER_BYTES = 32;
+
+	// Bytes read or written at a time by save and load
+	private static final int IO_BUFFER_BYTES = 1 << 20;
+
+	private final long version;
+
+	private final Town[] towns;
+	private final Map<Town, Integer> ids;
+
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] weights;
+	private final int[] roadIds;
+	private final String[] roadNames;
+
+	// Connected components, built from the roads the first time they are asked for
+	private volatile ComponentIndex components;
+
+	/**
+	 * Builds a snapshot of the towns and roads currently in the graph.
+	 * @param graph graph to copy
+	 * @param version version of the graph being copied
+	 */
+	public CompactGraph(Graph graph, long version) {
+		this.version = version;
+
+		// Number the towns
+		Set<Town> vertices = graph.vertexSet();
+		towns = vertices.toArray(new Town[0]);
+		ids = new HashMap<>(towns.length * 2);
+		for(int i = 0; i < towns.length; i++)
+			ids.put(towns[i], i);
+
+		// Count the degree of each town
+		Set<Road> roads = graph.edgeSet();
+		offsets = new int[towns.length + 1];
+		for(Road r: roads) {
+			offsets[ids.get(r.getSource()) + 1]++;
+			offsets[ids.get(r.getDestination()) + 1]++;
+		}
+		for(int i = 0; i < towns.length; i++)
+			offsets[i + 1] += offsets[i];
+
+		// Fill both directions of every road
+		targets = new int[offsets[towns.length]];
+		weights = new int[targets.length];
+		roadIds = new int[targets.length];
+		roadNames = new String[roads.size()];
+		int[] next = Arrays.copyOf(offsets, towns.length);
+		int road = 0;
+
+		for(Road r: roads) {
+			int u = ids.get(r.getSource());
+			int v = ids.get(r.getDestination());
+			roadNames[road] = r.getName();
+
+			targets[next[u]] = v;
+			weights[next[u]] = r.getWeight();
+			roadIds[next[u]++] = road;
+
+			targets[next[v]] = u;
+			weights[next[v]] = r.getWeight();
+			roadIds[next[v]++] = road;
+			road++;
+		}
+	}
+
+	// One search workspace per thread, shared by the snapshots it searches
+	private static final ThreadLocal<SearchWorkspace> WORKSPACES = new ThreadLocal<>();
+
+	// Constructor for snapshots read from a file or sharing another snapshot's arrays
+	private CompactGraph(long version, Town[] towns, Map<Town, Integer> ids, int[] offsets, int[] targets, int[] weights, int[] roadIds, String[] roadNames) {
+		this.version = version;
+		this.towns = towns;
+		this.ids = ids;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		this.roadIds = roadIds;
+		this.roadNames = roadNames;
+	}
+
+	// Returns a snapshot sharing this one's towns and roads under another version
+	CompactGraph withVersion(long version) {
+		return new CompactGraph(version, towns, ids, offsets, targets, weights, roadIds, roadNames);
+	}
+
+	/**
+	 * Writes this snapshot to a binary file: a header, the town coordinates, the CSR arrays,
+	 * tables of the town and road names, and a CRC32 checksum of everything before it.
+	 * Numbers are little-endian.
+	 * @param file the file to write, replaced if it exists
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE)) {
+			SnapshotWriter out = new SnapshotWriter(channel);
+
+			out.putInt(MAGIC);
+			out.putInt(FORMAT_VERSION);
+			out.putLong(version);
+			out.putInt(towns.length);
+			out.putInt(roadNames.length);
+			out.putInt(targets.length);
+			out.putInt(0);
+
+			// Towns without a location are stored as NaN coordinates
+			for(Town t: towns)
+				out.putDouble(t.hasLocation() ? t.getX() : Double.NaN);
+			for(Town t: towns)
+				out.putDouble(t.hasLocation() ? t.getY() : Double.NaN);
+
+			out.putInts(offsets);
+			out.putInts(targets);
+			out.putInts(weights);
+			out.putInts(roadIds);
+			putTable(out, Arrays.stream(towns).map(Town::getName).toArray(String[]::new));
+			putTable(out, roadNames);
+
+			out.finish();
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Reads a snapshot written by save. The checksum is verified first, then the arrays
+	 * are read in bulk, so there is no per-road parsing.
+	 * @param file the file to read
+	 * @return the snapshot, with the version of the graph it was saved from
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if the file is not a snapshot, was written in
+	 * another format version, or is corrupt
+	 */
+	public static CompactGraph load(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size < HEADER_BYTES + 4)
+				throw new IllegalArgumentException("not a graph snapshot: " + file);
+
+			SnapshotReader in = new SnapshotReader(channel, size - 4);
+			if(in.getInt() != MAGIC)
+				throw new IllegalArgumentException("not a graph snapshot: " + file);
+			int format = in.getInt();
+			if(format != FORMAT_VERSION)
+				throw new IllegalArgumentException("unsupported snapshot format " + format + ": " + file);
+
+			// Checked before any count in the file is trusted
+			ByteBuffer stored = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(stored, size - 4);
+			if(stored.getInt(0) != checksum(channel, size - 4))
+				throw new IllegalArgumentException("corrupt graph snapshot, checksum mismatch: " + file);
+
+			long version = in.getLong();
+			int townCount = in.getInt();
+			int roadCount = in.getInt();
+			int slotCount = in.getInt();
+			in.getInt();
+
+			double[] x = in.getDoubles(townCount);
+			double[] y = in.getDoubles(townCount);
+			int[] offsets = in.getInts(townCount + 1);
+			int[] targets = in.getInts(slotCount);
+			int[] weights = in.getInts(slotCount);
+			int[] roadIds = in.getInts(slotCount);
+			String[] townNames = getTable(in, townCount);
+			String[] roadNames = getTable(in, roadCount);
+
+			Town[] towns = new Town[townCount];
+			Map<Town, Integer> ids = new HashMap<>(townCount * 2);
+			for(int i = 0; i < townCount; i++) {
+				towns[i] = Double.isNaN(x[i]) ? new Town(townNames[i]) : new Town(townNames[i], x[i], y[i]);
+				ids.put(towns[i], i);
+			}
+
+			return new CompactGraph(version, towns, ids, offsets, targets, weights, roadIds, roadNames);
+		}
+	}
+
+	// Writes a table of strings: the byte length of each, then their bytes
+	private static void putTable(SnapshotWriter out, String[] strings) throws IOException {
+		byte[][] bytes = new byte[strings.length][];
+		for(int i = 0; i < strings.length; i++) {
+			bytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+			out.putInt(bytes[i].length);
+		}
+		for(byte[] b: bytes)
+			out.put(b);
+	}
+
+	private static String[] getTable(SnapshotReader in, int count) throws IOException {
+		int[] lengths = in.getInts(count);
+		String[] strings = new String[count];
+		for(int i = 0; i < count; i++)
+			strings[i] = new String(in.getBytes(lengths[i]), StandardCharsets.UTF_8);
+		return strings;
+	}
+
+	// Returns the CRC32 of the first length bytes of the file
+	private static int checksum(FileChannel channel, long length) throws IOException {
+		CRC32 crc = new CRC32();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_BYTES);
+		for(long position = 0; position < length; ) {
+			buffer.clear().limit((int) Math.min(buffer.capacity(), length - position));
+			int read = channel.read(buffer, position);
+			if(read < 0)
+				throw new EOFException();
+			crc.update(buffer.flip());
+			position += read;
+		}
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * This is a class that writes a snapshot file through a fixed buffer, keeping the CRC32
+	 * of everything written so far
+	 */
+	private static class SnapshotWriter {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		private final CRC32 crc = new CRC32();
+
+		SnapshotWriter(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		void putInt(int value) throws IOException {
+			room(Integer.BYTES);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException {
+			room(Long.BYTES);
+			buffer.putLong(value);
+		}
+
+		void putDouble(double value) throws IOException {
+			room(Double.BYTES);
+			buffer.putDouble(value);
+		}
+
+		void putInts(int[] values) throws IOException {
+			for(int i = 0; i < values.length; ) {
+				room(Integer.BYTES);
+				int count = Math.min(values.length - i, buffer.remaining() / Integer.BYTES);
+				buffer.asIntBuffer().put(values, i, count);
+				buffer.position(buffer.position() + count * Integer.BYTES);
+				i += count;
+			}
+		}
+
+		void put(byte[] bytes) throws IOException {
+			for(int i = 0; i < bytes.length; ) {
+				room(1);
+				int count = Math.min(bytes.length - i, buffer.remaining());
+				buffer.put(bytes, i, count);
+				i += count;
+			}
+		}
+
+		// Writes out the buffer, then the checksum of everything written
+		void finish() throws IOException {
+			flush();
+			buffer.putInt((int) crc.getValue()).flip();
+			drain();
+		}
+
+		// Makes room for a value in the buffer
+		private void room(int bytes) throws IOException {
+			if(buffer.remaining() < bytes)
+				flush();
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			crc.update(buffer.duplicate());
+			drain();
+		}
+
+		private void drain() throws IOException {
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+	}
+
+	/**
+	 * This is a class that reads a snapshot file from the start through a fixed buffer,
+	 * never past the given end
+	 */
+	private static class SnapshotReader {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(IO_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		private final long end;
+		private long position;
+
+		SnapshotReader(FileChannel channel, long end) {
+			this.channel = channel;
+			this.end = end;
+			buffer.limit(0);
+		}
+
+		int getInt() throws IOException {
+			need(Integer.BYTES);
+			return buffer.getInt();
+		}
+
+		long getLong() throws IOException {
+			need(Long.BYTES);
+			return buffer.getLong();
+		}
+
+		int[] getInts(int count) throws IOException {
+			int[] values = new int[count];
+			for(int i = 0; i < count; ) {
+				need(Integer.BYTES);
+				int n = Math.min(count - i, buffer.remaining() / Integer.BYTES);
+				buffer.asIntBuffer().get(values, i, n);
+				buffer.position(buffer.position() + n * Integer.BYTES);
+				i += n;
+			}
+			return values;
+		}
+
+		double[] getDoubles(int count) throws IOException {
+			double[] values = new double[count];
+			for(int i = 0; i < count; ) {
+				need(Double.BYTES);
+				int n = Math.min(count - i, buffer.remaining() / Double.BYTES);
+				buffer.asDoubleBuffer().get(values, i, n);
+				buffer.position(buffer.position() + n * Double.BYTES);
+				i += n;
+			}
+			return values;
+		}
+
+		byte[] getBytes(int length) throws IOException {
+			byte[] bytes = new byte[length];
+			for(int i = 0; i < length; ) {
+				need(1);
+				int n = Math.min(length - i, buffer.remaining());
+				buffer.get(bytes, i, n);
+				i += n;
+			}
+			return bytes;
+		}
+
+		// Reads ahead until the buffer holds at least the given number of bytes
+		private void need(int bytes) throws IOException {
+			if(buffer.remaining() >= bytes)
+				return;
+
+			buffer.compact();
+			while(buffer.position() < bytes) {
+				buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + end - position));
+				int read = channel.read(buffer, position);
+				if(read <= 0)
+					throw new EOFException("graph snapshot ends early");
+				position += read;
+			}
+			buffer.flip();
+		}
+	}
+	/**
+	 * Returns a snapshot with one road's length changed, sharing every array but the
+	 * weights with this one
+	 * @param road the road whose length changed
+	 * @param weight its new length
+	 * @param version version of the graph after the change
+	 * @return the updated snapshot
+	 */
+	CompactGraph withRoadWeight(Road road, int weight, long version) {
+		int[] newWeights = weights.clone();
+		int u = indexOf(road.getSource());
+		int v = indexOf(road.getDestination());
+
+		for(int slot = offsets[u]; slot < offsets[u + 1]; slot++) {
+			if(targets[slot] == v)
+				newWeights[slot] = weight;
+		}
+		for(int slot = offsets[v]; slot < offsets[v + 1]; slot++) {
+			if(targets[slot] == u)
+				newWeights[slot] = weight;
+		}
+		return new CompactGraph(version, towns, ids, offsets, targets, newWeights, roadIds, roadNames);
+	}
+
+	// Returns the version of the graph this snapshot was taken from
+	public long getVersion() {
+		return version;
+	}
+
+	// Returns the number of towns
+	public int size() {
+		return towns.length;
+	}
+
+	// Returns the number of roads
+	public int roadCount() {
+		return roadNames.length;
+	}
+
+	/**
+	 * Returns the id of a town in this snapshot
+	 * @param town the town to look up
+	 * @return the town's id, or -1 if the town is not in the snapshot
+	 */
+	public int indexOf(Town town) {
+		if(town == null)
+			return -1;
+		Integer id = ids.get(town);
+		return id == null ? -1 : id;
+	}
+
+	// Returns the town with the given id
+	public Town getTown(int id) {
+		return towns[id];
+	}
+
+	/**
+	 * Returns the id of the road joining two towns
+	 * @param sourceVertex one town
+	 * @param destinationVertex the other town
+	 * @return the road's id, or -1 if either town is unknown or no road joins them
+	 */
+	public int roadBetween(Town sourceVertex, Town destinationVertex) {
+		int source = indexOf(sourceVertex);
+		int target = indexOf(destinationVertex);
+		if(source < 0 || target < 0)
+			return -1;
+
+		for(int slot = offsets[source]; slot < offsets[source + 1]; slot++) {
+			if(targets[slot] == target)
+				return roadIds[slot];
+		}
+		return -1;
+	}
+
+	// Returns the name of the road with the given id
+	public String getRoadName(int roadId) {
+		return roadNames[roadId];
+	}
+
+	// Returns the first road slot of a town
+	public int firstSlot(int town) {
+		return offsets[town];
+	}
+
+	// Returns one past the last road slot of a town
+	public int endSlot(int town) {
+		return offsets[town + 1];
+	}
+
+	// Returns the town at the far end of a road slot
+	public int target(int slot) {
+		return targets[slot];
+	}
+
+	// Returns the length of the road in a slot
+	public int weight(int slot) {
+		return weights[slot];
+	}
+
+	// Returns the id of the road in a slot
+	public int roadId(int slot) {
+		return roadIds[slot];
+	}
+
+	/**
+	 * Returns true if a path of roads joins two towns. Answered from a union-find of the
+	 * snapshot's roads without a search.
+	 * @param sourceVertex one town
+	 * @param destinationVertex the other town
+	 * @return true if both towns are in the snapshot and connected
+	 */
+	public boolean connected(Town sourceVertex, Town destinationVertex) {
+		return components().connected(indexOf(sourceVertex), indexOf(destinationVertex));
+	}
+
+	/**
+	 * Returns the connected components of the snapshot, building them on first use. Threads
+	 * racing to build them each publish a complete index, so none is seen half built.
+	 */
+	ComponentIndex components() {
+		ComponentIndex index = components;
+		if(index == null) {
+			index = new ComponentIndex(towns.length);
+			for(int u = 0; u < towns.length; u++)
+				index.add(u);
+
+			// Every road is stored in both directions; union it from its lower town
+			for(int u = 0; u < towns.length; u++) {
+				for(int slot = offsets[u]; slot < offsets[u + 1]; slot++) {
+					if(targets[slot] > u)
+						index.union(u, targets[slot]);
+				}
+			}
+			components = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the length of the shortest path between two towns
+	 * @param sourceVertex starting town
+	 * @param destinationVertex ending town
+	 * @return the distance in miles, or UNREACHABLE if there is no path
+	 */
+	public int distance(Town sourceVertex, Town destinationVertex) {
+		int source = indexOf(sourceVertex);
+		int target = indexOf(destinationVertex);
+
+		if(source < 0 || target < 0)
+			return UNREACHABLE;
+		return search(source, target).distance(target);
+	}
+
+	/**
+	 * Returns the length of the shortest path from a town to every town, indexed by town id
+	 * @param sourceVertex starting town
+	 * @return the distances in miles, UNREACHABLE for towns that cannot be reached
+	 */
+	public int[] distancesFrom(Town sourceVertex) {
+		int source = indexOf(sourceVertex);
+		if(source < 0)
+			throw new IllegalArgumentException();
+
+		SearchWorkspace search = search(source, -1);
+		int[] dist = new int[towns.length];
+		for(int t = 0; t < towns.length; t++)
+			dist[t] = search.distance(t);
+		return dist;
+	}
+
+	/**
+	 * Returns every town within a distance of a town. The search reuses a per-thread
+	 * workspace and never queues a path longer than maxMiles, so its work grows with the
+	 * number of towns within reach rather than with the graph.
+	 * @param sourceVertex the town to measure from
+	 * @param maxMiles the largest distance to include
+	 * @return the towns and their distances, nearest first; empty for an unknown town
+	 */
+	public LinkedHashMap<Town, Integer> townsWithin(Town sourceVertex, int maxMiles) {
+		LinkedHashMap<Town, Integer> result = new LinkedHashMap<>();
+		int source = indexOf(sourceVertex);
+		if(source < 0 || maxMiles < 0)
+			return result;
+
+		SearchWorkspace search = workspace();
+		search.start(source);
+		while(search.hasNext()) {
+			int u = search.next();
+			int du = search.distance(u);
+			result.put(towns[u], du);
+
+			for(int slot = offsets[u]; slot < offsets[u + 1]; slot++) {
+				int alt = du + weights[slot];
+				if(alt <= maxMiles)
+					search.relax(targets[slot], alt, slot);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Find the shortest path from the sourceVertex to the destinationVertex on this snapshot.
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the path in the same format as Graph.shortestPath, or null if
+	 * there is no path between the towns
+	 */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+		Route route = route(sourceVertex, destinationVertex);
+		return route == null ? null : route.toStrings();
+	}
+
+	/**
+	 * Find the shortest path from the sourceVertex to the destinationVertex on this snapshot,
+	 * as town and road ids
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the route, or null if there is no path between the towns
+	 */
+	public Route route(Town sourceVertex, Town destinationVertex) {
+		int source = indexOf(sourceVertex);
+		int target = indexOf(destinationVertex);
+
+		if(source < 0 || target < 0)
+			return null;
+
+		SearchWorkspace search = search(source, target);
+		if(search.distance(target) == UNREACHABLE)
+			return null;
+		return Route.fromPreviousSlots(this, source, target, search::previousSlot);
+	}
+
+	// Returns this thread's search workspace, large enough for every town of this snapshot
+	SearchWorkspace workspace() {
+		SearchWorkspace search = WORKSPACES.get();
+		if(search == null || search.size() < towns.length) {
+			search = new SearchWorkspace(towns.length);
+			WORKSPACES.set(search);
+		}
+		return search;
+	}
+
+	/**
+	 * Dijkstra's algorithm over the CSR arrays in this thread's workspace, so no state is
+	 * allocated or cleared per search. Stops once the target (if not negative) is settled.
+	 * @return the workspace, holding the distance and road slot of every town reached
+	 */
+	private SearchWorkspace search(int source, int target) {
+		SearchWorkspace search = workspace();
+		search.start(source);
+
+		while(search.hasNext()) {
+			int u = search.next();
+			if(u == target)
+				break;
+
+			// Relax every road leaving u
+			int du = search.distance(u);
+			for(int slot = offsets[u]; slot < offsets[u + 1]; slot++)
+				search.relax(targets[slot], du + weights[slot], slot);
+		}
+		return search;
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm in this thread's workspace and copies the result out for
+	 * callers that keep it: dist gets the cost of every settled town, UNREACHABLE for the
+	 * others, and prevSlot the slot of the road used to reach it. Stops early once the
+	 * target (if not negative) has been settled.
+	 */
+	void dijkstra(int source, int target, int[] dist, int[] prevSlot) {
+		SearchWorkspace search = search(source, target);
+		for(int t = 0; t < towns.length; t++) {
+			dist[t] = search.distance(t);
+			prevSlot[t] = search.previousSlot(t);
+		}
+	}
+
+	// Describes travel along a road slot in the shortestPath format: "A via Road to B 4 mi"
+	public String formatHop(int slot) {
+		return towns[townOfSlot(slot)] + " via " + roadNames[roadIds[slot]] + " to " + towns[targets[slot]] + " " + weights[slot] + " mi";
+	}
+
+	// Returns the town whose row contains the given road slot
+	public int townOfSlot(int slot) {
+		int low = 0;
+		int high = towns.length - 1;
+
+		// Find the last town whose row starts at or before the slot
+		while(low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if(offsets[mid] <= slot)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+}
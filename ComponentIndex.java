@@ -0,0 +1,126 @@
+import java.util.Arrays;
+
+/**
+ * This is a class that implements a union-find index of the connected components of a
+ * graph, over its dense town ids. Adding a road merges two components in near-constant
+ * time. Removing one cannot be undone in a union-find, so the graph marks the index stale
+ * and rebuilds it from its roads the next time it is asked.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class ComponentIndex {
+
+	// Parent of each id, -1 for ids no town holds; roots are their own parent
+	private int[] parent;
+
+	// Number of towns in the component of each root
+	private int[] size;
+
+	private int components;
+
+	// Constructor for ids 0 to capacity - 1, none of them held
+	public ComponentIndex(int capacity) {
+		parent = new int[capacity];
+		size = new int[capacity];
+		Arrays.fill(parent, -1);
+	}
+
+	// Forgets every town, keeping room for ids below capacity
+	public void clear(int capacity) {
+		if(parent.length < capacity) {
+			parent = new int[capacity];
+			size = new int[capacity];
+		}
+		Arrays.fill(parent, -1);
+		components = 0;
+	}
+
+	// Adds a town as a component of its own
+	public void add(int id) {
+		if(id >= parent.length) {
+			int capacity = Math.max(id + 1, parent.length * 2);
+			int old = parent.length;
+			parent = Arrays.copyOf(parent, capacity);
+			size = Arrays.copyOf(size, capacity);
+			Arrays.fill(parent, old, capacity, -1);
+		}
+		parent[id] = id;
+		size[id] = 1;
+		components++;
+	}
+
+	/**
+	 * Merges the components of two towns, hanging the smaller under the larger so trees
+	 * stay shallow
+	 * @return true if the towns were in different components
+	 */
+	public boolean union(int a, int b) {
+		int rootA = find(a);
+		int rootB = find(b);
+		if(rootA == rootB)
+			return false;
+
+		if(size[rootA] < size[rootB]) {
+			int swap = rootA;
+			rootA = rootB;
+			rootB = swap;
+		}
+		parent[rootB] = rootA;
+		size[rootA] += size[rootB];
+		components--;
+		return true;
+	}
+
+	/**
+	 * Returns the root of a town's component. Union by size keeps the walk O(log n), and
+	 * finds do not compress paths, so concurrent readers never write to the index.
+	 * @param id the town's id
+	 * @return the id of the component's root, or -1 if no town holds the id
+	 */
+	public int find(int id) {
+		if(id < 0 || id >= parent.length || parent[id] < 0)
+			return -1;
+		while(parent[id] != id)
+			id = parent[id];
+		return id;
+	}
+
+	// Returns true if both towns are held and in the same component
+	public boolean connected(int a, int b) {
+		int root = find(a);
+		return root >= 0 && root == find(b);
+	}
+
+	// Returns the number of towns in the component of a town, 0 if no town holds the id
+	public int componentSize(int id) {
+		int root = find(id);
+		return root < 0 ? 0 : size[root];
+	}
+
+	// Returns the number of components
+	public int getComponentCount() {
+		return components;
+	}
+
+	/**
+	 * Returns the size of every component
+	 * @return the number of towns in each component, largest first
+	 */
+	public int[] getComponentSizes() {
+		int[] sizes = new int[components];
+		int i = 0;
+		for(int id = 0; id < parent.length; id++) {
+			if(parent[id] == id)
+				sizes[i++] = size[id];
+		}
+
+		// Sort descending
+		Arrays.sort(sizes);
+		for(int a = 0, b = sizes.length - 1; a < b; a++, b--) {
+			int swap = sizes[a];
+			sizes[a] = sizes[b];
+			sizes[b] = swap;
+		}
+		return sizes;
+	}
+}
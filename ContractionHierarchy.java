@@ -0,0 +1,500 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.stream.IntStream;
+
+/**
+ * This is a class that implements Contraction Hierarchies over a CompactGraph snapshot.
+ * Preprocessing contracts the towns one at a time in order of importance, adding a
+ * shortcut road around each contracted town wherever it lay on the only shortest path
+ * between two of its neighbors. Queries then run a bidirectional Dijkstra search that only
+ * climbs to more important towns, and shortcuts are unpacked back into the original roads.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class ContractionHierarchy {
+
+	// Towns a witness search may settle before giving up and adding the shortcut
+	private static final int SETTLE_LIMIT = 50;
+
+	private final CompactGraph graph;
+	private final int size;
+
+	// Contraction order of every town
+	private final int[] rank;
+
+	// Every road of the hierarchy. For original roads first holds the road id and second is
+	// -1; for shortcuts first and second are the two hierarchy roads being bypassed.
+	private int edgeCount;
+	private int[] edgeFrom;
+	private int[] edgeTo;
+	private int[] edgeWeight;
+	private int[] edgeFirst;
+	private int[] edgeSecond;
+	private int shortcutCount;
+
+	// Upward search graph: roads of each town leading to a more important town
+	private int[] upOffsets;
+	private int[] upTargets;
+	private int[] upEdges;
+
+	private long preprocessingMillis;
+
+	// Per-thread search state, reset lazily between queries
+	private final ThreadLocal<Search> witnessSearches;
+	private final ThreadLocal<Search[]> querySearches;
+
+	/**
+	 * Contracts every town of the snapshot. The initial importance of every town is computed
+	 * in parallel.
+	 * @param graph the snapshot to preprocess
+	 */
+	public ContractionHierarchy(CompactGraph graph) {
+		long start = System.nanoTime();
+		this.graph = graph;
+		size = graph.size();
+		rank = new int[size];
+		witnessSearches = ThreadLocal.withInitial(() -> new Search(size));
+		querySearches = ThreadLocal.withInitial(() -> new Search[] { new Search(size), new Search(size) });
+
+		// Hierarchy roads touching each town
+		int[][] adjacent = new int[size][];
+		int[] adjacentCount = new int[size];
+		for(int u = 0; u < size; u++)
+			adjacent[u] = new int[Math.max(2, graph.endSlot(u) - graph.firstSlot(u))];
+
+		int roads = graph.roadCount();
+		edgeFrom = new int[roads * 2 + 16];
+		edgeTo = new int[edgeFrom.length];
+		edgeWeight = new int[edgeFrom.length];
+		edgeFirst = new int[edgeFrom.length];
+		edgeSecond = new int[edgeFrom.length];
+
+		// Add each road once, from the lower numbered end
+		for(int u = 0; u < size; u++) {
+			for(int slot = graph.firstSlot(u); slot < graph.endSlot(u); slot++) {
+				int v = graph.target(slot);
+				if(u < v)
+					addEdge(u, v, graph.weight(slot), graph.roadId(slot), -1, adjacent, adjacentCount);
+			}
+		}
+
+		// Initial importance of every town
+		boolean[] contracted = new boolean[size];
+		int[] contractedNeighbors = new int[size];
+		int[] priority = new int[size];
+		IntStream.range(0, size).parallel().forEach(v ->
+			priority[v] = contract(v, false, contracted, contractedNeighbors, adjacent, adjacentCount, witnessSearches.get()));
+
+		IntMinHeap queue = new IntMinHeap(size);
+		for(int v = 0; v < size; v++)
+			queue.offer(v, priority[v]);
+
+		// Contract the least important town, re-checking its importance first (lazy updates)
+		Search witness = witnessSearches.get();
+		int order = 0;
+		while(!queue.isEmpty()) {
+			int v = queue.poll();
+			int p = contract(v, false, contracted, contractedNeighbors, adjacent, adjacentCount, witness);
+
+			if(!queue.isEmpty() && p > queue.peekKey()) {
+				queue.offer(v, p);
+				continue;
+			}
+
+			contract(v, true, contracted, contractedNeighbors, adjacent, adjacentCount, witness);
+			contracted[v] = true;
+			rank[v] = order++;
+
+			for(int i = 0; i < adjacentCount[v]; i++) {
+				int u = other(adjacent[v][i], v);
+				if(!contracted[u]) {
+					contractedNeighbors[u]++;
+					prune(u, contracted, adjacent, adjacentCount);
+				}
+			}
+		}
+
+		buildUpwardGraph();
+		preprocessingMillis = (System.nanoTime() - start) / 1_000_000;
+	}
+
+	// Returns the version of the graph this hierarchy was built from
+	public long getVersion() {
+		return graph.getVersion();
+	}
+
+	// Returns the snapshot this hierarchy was built from
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	// Returns the number of shortcut roads added by preprocessing
+	public int getShortcutCount() {
+		return shortcutCount;
+	}
+
+	// Returns how long preprocessing took, in milliseconds
+	public long getPreprocessingMillis() {
+		return preprocessingMillis;
+	}
+
+	/**
+	 * Returns the length of the shortest path between two towns
+	 * @param sourceVertex starting town
+	 * @param destinationVertex ending town
+	 * @return the distance in miles, or CompactGraph.UNREACHABLE if there is no path
+	 */
+	public int distance(Town sourceVertex, Town destinationVertex) {
+		int source = graph.indexOf(sourceVertex);
+		int target = graph.indexOf(destinationVertex);
+
+		if(source < 0 || target < 0)
+			return CompactGraph.UNREACHABLE;
+
+		Search[] searches = querySearches.get();
+		int meeting = query(source, target, searches);
+		int dist = meeting < 0 ? CompactGraph.UNREACHABLE : searches[0].dist[meeting] + searches[1].dist[meeting];
+		searches[0].reset();
+		searches[1].reset();
+		return dist;
+	}
+
+	/**
+	 * Find the shortest path from the sourceVertex to the destinationVertex.
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the path in the same format as Graph.shortestPath, or null if
+	 * there is no path between the towns
+	 */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+		Route route = route(sourceVertex, destinationVertex);
+		return route == null ? null : route.toStrings();
+	}
+
+	/**
+	 * Find the shortest path from the sourceVertex to the destinationVertex as town and
+	 * road ids of the snapshot
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the route, or null if there is no path between the towns
+	 */
+	public Route route(Town sourceVertex, Town destinationVertex) {
+		int source = graph.indexOf(sourceVertex);
+		int target = graph.indexOf(destinationVertex);
+
+		if(source < 0 || target < 0)
+			return null;
+
+		Search[] searches = querySearches.get();
+		int meeting = query(source, target, searches);
+		if(meeting < 0) {
+			searches[0].reset();
+			searches[1].reset();
+			return null;
+		}
+
+		// Hierarchy roads from the source up to the meeting town, then down to the target
+		Deque<Integer> up = new ArrayDeque<>();
+		for(int t = meeting; t != source; t = other(searches[0].prevEdge[t], t))
+			up.push(searches[0].prevEdge[t]);
+
+		ArrayList<Integer> down = new ArrayList<>();
+		for(int t = meeting; t != target; t = other(searches[1].prevEdge[t], t))
+			down.add(searches[1].prevEdge[t]);
+		searches[0].reset();
+		searches[1].reset();
+
+		Route.Builder result = new Route.Builder(graph, source);
+		int from = source;
+		for(int e: up) {
+			unpack(e, from, result);
+			from = other(e, from);
+		}
+		for(int e: down) {
+			unpack(e, from, result);
+			from = other(e, from);
+		}
+
+		return result.build();
+	}
+
+	/**
+	 * Bidirectional upward search. Returns the town where the shortest path peaks, or -1
+	 * if the towns are not connected; the searches are left filled for the caller.
+	 */
+	private int query(int source, int target, Search[] searches) {
+		Search forward = searches[0];
+		Search backward = searches[1];
+		forward.start(source);
+		backward.start(target);
+
+		int best = CompactGraph.UNREACHABLE;
+		int meeting = -1;
+
+		while(!forward.heap.isEmpty() || !backward.heap.isEmpty()) {
+
+			// Advance the side with the smaller frontier
+			Search side = backward;
+			if(!forward.heap.isEmpty() && (backward.heap.isEmpty() || forward.heap.peekKey() <= backward.heap.peekKey()))
+				side = forward;
+			Search other = side == forward ? backward : forward;
+
+			// A side is done once nothing in its frontier can improve the best path
+			if(side.heap.peekKey() >= best) {
+				side.heap.clear();
+				continue;
+			}
+
+			int u = side.heap.poll();
+			if(other.dist[u] != CompactGraph.UNREACHABLE && side.dist[u] + other.dist[u] < best) {
+				best = side.dist[u] + other.dist[u];
+				meeting = u;
+			}
+
+			for(int i = upOffsets[u]; i < upOffsets[u + 1]; i++)
+				side.relax(u, upTargets[i], upEdges[i], edgeWeight[upEdges[i]]);
+		}
+
+		return meeting;
+	}
+
+	// Appends the original roads making up a hierarchy road, walked starting at from
+	private void unpack(int edge, int from, Route.Builder result) {
+		Deque<int[]> stack = new ArrayDeque<>();
+		stack.push(new int[] { edge, from });
+
+		while(!stack.isEmpty()) {
+			int[] top = stack.pop();
+			int e = top[0];
+			int u = top[1];
+
+			if(edgeSecond[e] < 0) {
+				int v = other(e, u);
+				result.add(edgeFirst[e], v, edgeWeight[e]);
+				continue;
+			}
+
+			// Walk the half touching u first, then the half leaving the bypassed town
+			int first = edgeFirst[e];
+			int second = edgeSecond[e];
+			if(edgeFrom[first] != u && edgeTo[first] != u) {
+				first = edgeSecond[e];
+				second = edgeFirst[e];
+			}
+			stack.push(new int[] { second, other(first, u) });
+			stack.push(new int[] { first, u });
+		}
+	}
+
+	/**
+	 * Simulates or performs the contraction of town v. Runs a witness search from each
+	 * remaining neighbor and counts (or adds, if apply is true) the shortcuts needed to
+	 * keep neighbor-to-neighbor distances. Returns the town's importance: shortcuts added
+	 * minus roads removed, plus neighbors already contracted.
+	 */
+	private int contract(int v, boolean apply, boolean[] contracted, int[] contractedNeighbors,
+			int[][] adjacent, int[] adjacentCount, Search witness) {
+
+		// Collect the remaining neighbors with the shortest road to each
+		int count = adjacentCount[v];
+		int[] neighbors = new int[count];
+		int[] neighborEdges = new int[count];
+		int degree = 0;
+
+		for(int i = 0; i < count; i++) {
+			int e = adjacent[v][i];
+			int u = other(e, v);
+			if(contracted[u] || u == v)
+				continue;
+
+			int j = 0;
+			while(j < degree && neighbors[j] != u)
+				j++;
+			if(j == degree) {
+				neighbors[degree] = u;
+				neighborEdges[degree++] = e;
+			}
+			else if(edgeWeight[e] < edgeWeight[neighborEdges[j]]) {
+				neighborEdges[j] = e;
+			}
+		}
+
+		int shortcuts = 0;
+		for(int i = 0; i < degree; i++) {
+			int u = neighbors[i];
+			int viaU = edgeWeight[neighborEdges[i]];
+
+			// Mark the later neighbors as targets and find the longest path to them through v
+			int maxWeight = 0;
+			witness.stamp++;
+			for(int j = i + 1; j < degree; j++) {
+				witness.target[neighbors[j]] = witness.stamp;
+				maxWeight = Math.max(maxWeight, edgeWeight[neighborEdges[j]]);
+			}
+
+			// Distances from u that avoid v, up to the longest path through v
+			witness.witness(u, v, viaU + maxWeight, degree - i - 1, contracted, adjacent, adjacentCount);
+
+			for(int j = i + 1; j < degree; j++) {
+				int w = neighbors[j];
+				int via = viaU + edgeWeight[neighborEdges[j]];
+
+				if(witness.dist[w] > via) {
+					shortcuts++;
+					if(apply) {
+						addEdge(u, w, via, neighborEdges[i], neighborEdges[j], adjacent, adjacentCount);
+						shortcutCount++;
+					}
+				}
+			}
+			witness.reset();
+		}
+
+		return shortcuts - degree + contractedNeighbors[v];
+	}
+
+	// Drops roads to contracted towns from a town's list, they are no longer searched
+	private void prune(int u, boolean[] contracted, int[][] adjacent, int[] adjacentCount) {
+		int kept = 0;
+		for(int i = 0; i < adjacentCount[u]; i++) {
+			int e = adjacent[u][i];
+			if(!contracted[other(e, u)])
+				adjacent[u][kept++] = e;
+		}
+		adjacentCount[u] = kept;
+	}
+
+	// Adds a hierarchy road and returns its id
+	private int addEdge(int from, int to, int weight, int first, int second, int[][] adjacent, int[] adjacentCount) {
+		if(edgeCount == edgeFrom.length) {
+			int capacity = edgeCount * 2;
+			edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+			edgeTo = Arrays.copyOf(edgeTo, capacity);
+			edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+			edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+			edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+		}
+
+		int e = edgeCount++;
+		edgeFrom[e] = from;
+		edgeTo[e] = to;
+		edgeWeight[e] = weight;
+		edgeFirst[e] = first;
+		edgeSecond[e] = second;
+
+		for(int t: new int[] { from, to }) {
+			if(adjacentCount[t] == adjacent[t].length)
+				adjacent[t] = Arrays.copyOf(adjacent[t], adjacent[t].length * 2);
+			adjacent[t][adjacentCount[t]++] = e;
+		}
+		return e;
+	}
+
+	// Stores every hierarchy road under its less important end
+	private void buildUpwardGraph() {
+		upOffsets = new int[size + 1];
+		for(int e = 0; e < edgeCount; e++)
+			upOffsets[lower(e) + 1]++;
+		for(int i = 0; i < size; i++)
+			upOffsets[i + 1] += upOffsets[i];
+
+		upTargets = new int[edgeCount];
+		upEdges = new int[edgeCount];
+		int[] next = Arrays.copyOf(upOffsets, size);
+
+		for(int e = 0; e < edgeCount; e++) {
+			int low = lower(e);
+			upTargets[next[low]] = other(e, low);
+			upEdges[next[low]++] = e;
+		}
+	}
+
+	// Returns the less important end of a hierarchy road
+	private int lower(int e) {
+		return rank[edgeFrom[e]] < rank[edgeTo[e]] ? edgeFrom[e] : edgeTo[e];
+	}
+
+	// Returns the end of a hierarchy road opposite to town
+	private int other(int e, int town) {
+		return edgeFrom[e] == town ? edgeTo[e] : edgeFrom[e];
+	}
+
+	/**
+	 * Dijkstra search state over all towns. Only the towns a search touches are reset, so
+	 * the arrays are allocated once per thread.
+	 */
+	private class Search {
+		int[] dist;
+		int[] prevEdge;
+		IntMinHeap heap;
+		int[] touched;
+		int touchedCount;
+
+		// Towns whose mark equals stamp are targets of the current witness search
+		int[] target;
+		int stamp;
+
+		Search(int size) {
+			dist = new int[size];
+			prevEdge = new int[size];
+			heap = new IntMinHeap(size);
+			touched = new int[16];
+			target = new int[size];
+			Arrays.fill(dist, CompactGraph.UNREACHABLE);
+		}
+
+		// Starts a search from a town
+		void start(int source) {
+			touch(source);
+			dist[source] = 0;
+			prevEdge[source] = -1;
+			heap.offer(source, 0);
+		}
+
+		// Offers town v a path through u along hierarchy road e
+		void relax(int u, int v, int e, int weight) {
+			int alt = dist[u] + weight;
+			if(alt < dist[v]) {
+				if(dist[v] == CompactGraph.UNREACHABLE)
+					touch(v);
+				dist[v] = alt;
+				prevEdge[v] = e;
+				heap.offer(v, alt);
+			}
+		}
+
+		// Distances from u among uncontracted towns other than v, up to limit or until every target is settled
+		void witness(int u, int v, int limit, int targets, boolean[] contracted, int[][] adjacent, int[] adjacentCount) {
+			start(u);
+			int settled = 0;
+
+			while(targets > 0 && !heap.isEmpty() && heap.peekKey() <= limit && settled++ < SETTLE_LIMIT) {
+				int x = heap.poll();
+				if(target[x] == stamp)
+					targets--;
+				for(int i = 0; i < adjacentCount[x]; i++) {
+					int e = adjacent[x][i];
+					int y = other(e, x);
+					if(y != v && !contracted[y])
+						relax(x, y, e, edgeWeight[e]);
+				}
+			}
+		}
+
+		// Clears the towns touched since the last reset
+		void reset() {
+			for(int i = 0; i < touchedCount; i++)
+				dist[touched[i]] = CompactGraph.UNREACHABLE;
+			touchedCount = 0;
+			heap.clear();
+		}
+
+		private void touch(int t) {
+			if(touchedCount == touched.length)
+				touched = Arrays.copyOf(touched, touched.length * 2);
+			touched[touchedCount++] = t;
+		}
+	}
+}
@@ -0,0 +1,16 @@
+/**
+ * This is an interface for lower bounds on the road distance between two towns, used to
+ * direct A* searches. An estimate must never exceed the length of the shortest path.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public interface DistanceHeuristic {
+
+	/**
+	 * Returns a lower bound on the shortest path distance between two towns
+	 * @param from the town being expanded
+	 * @param to the destination town
+	 * @return estimated miles, never more than the real distance
+	 */
+	int estimate(Town from, Town to);
+}
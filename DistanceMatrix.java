@@ -0,0 +1,205 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This is a class that holds the road distances from a list of origin towns to a list of
+ * destination towns. It is computed with one Dijkstra search per origin, fanned out over
+ * the common fork-join pool, and each search stops once every destination is settled.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class DistanceMatrix {
+
+	// Origins handled by one fork-join task without splitting further
+	private static final int ORIGINS_PER_TASK = 4;
+
+	// One search workspace per pool thread
+	private static final ThreadLocal<SearchWorkspace> WORKSPACES = new ThreadLocal<>();
+
+	private final CompactGraph graph;
+	private final int[] origins;
+	private final int[] destinations;
+	private final int[][] distances;
+	private final int[][] previousSlots;
+
+	/**
+	 * Computes the matrix on a snapshot
+	 * @param graph snapshot to route on
+	 * @param origins origin towns; towns not in the snapshot get UNREACHABLE rows
+	 * @param destinations destination towns; towns not in the snapshot get UNREACHABLE columns
+	 * @param withPredecessors true to keep each origin's shortest path tree so paths can be
+	 * rebuilt with getPath, at the cost of one int per town per origin
+	 */
+	public DistanceMatrix(CompactGraph graph, List<Town> origins, List<Town> destinations, boolean withPredecessors) {
+		this.graph = graph;
+		this.origins = ids(origins);
+		this.destinations = ids(destinations);
+		distances = new int[origins.size()][destinations.size()];
+		previousSlots = withPredecessors ? new int[origins.size()][] : null;
+
+		// Mark the distinct destinations
+		boolean[] isTarget = new boolean[graph.size()];
+		int targetCount = 0;
+		for(int t: this.destinations) {
+			if(t >= 0 && !isTarget[t]) {
+				isTarget[t] = true;
+				targetCount++;
+			}
+		}
+
+		ForkJoinPool.commonPool().invoke(new OriginTask(0, origins.size(), isTarget, targetCount));
+	}
+
+	// Returns the number of origins
+	public int rows() {
+		return origins.length;
+	}
+
+	// Returns the number of destinations
+	public int columns() {
+		return destinations.length;
+	}
+
+	/**
+	 * Returns the distance from an origin to a destination
+	 * @param row index of the origin
+	 * @param column index of the destination
+	 * @return the distance in miles, or CompactGraph.UNREACHABLE if there is no path
+	 */
+	public int getDistance(int row, int column) {
+		return distances[row][column];
+	}
+
+	// Returns the distances, indexed by origin then destination
+	public int[][] getDistances() {
+		return distances;
+	}
+
+	/**
+	 * Returns the snapshot id of the town before the destination on the shortest path
+	 * from the origin. Requires the matrix to be computed with predecessors.
+	 * @param row index of the origin
+	 * @param column index of the destination
+	 * @return the previous town's id, or -1 if there is none
+	 * @throws IllegalStateException if the matrix was computed without predecessors
+	 */
+	public int getPredecessor(int row, int column) {
+		if(previousSlots == null)
+			throw new IllegalStateException("computed without predecessors");
+		int target = destinations[column];
+		if(target < 0 || distances[row][column] == CompactGraph.UNREACHABLE || target == origins[row])
+			return -1;
+		return graph.townOfSlot(previousSlots[row][target]);
+	}
+
+	/**
+	 * Rebuilds the shortest path from an origin to a destination. Requires the matrix to
+	 * be computed with predecessors.
+	 * @param row index of the origin
+	 * @param column index of the destination
+	 * @return the path in the same format as Graph.shortestPath, or null if there is none
+	 */
+	public ArrayList<String> getPath(int row, int column) {
+		Route route = getRoute(row, column);
+		return route == null ? null : route.toStrings();
+	}
+
+	/**
+	 * Rebuilds the shortest path from an origin to a destination as town and road ids.
+	 * Requires the matrix to be computed with predecessors.
+	 * @param row index of the origin
+	 * @param column index of the destination
+	 * @return the route, or null if there is none
+	 */
+	public Route getRoute(int row, int column) {
+		if(previousSlots == null)
+			throw new IllegalStateException("computed without predecessors");
+		if(distances[row][column] == CompactGraph.UNREACHABLE)
+			return null;
+
+		int[] previous = previousSlots[row];
+		return Route.fromPreviousSlots(graph, origins[row], destinations[column], t -> previous[t]);
+	}
+
+	// Looks up the snapshot ids of the towns
+	private int[] ids(List<Town> towns) {
+		int[] ids = new int[towns.size()];
+		for(int i = 0; i < ids.length; i++)
+			ids[i] = graph.indexOf(towns.get(i));
+		return ids;
+	}
+
+	// Runs the search for one origin and fills its row
+	private void searchFrom(int row, boolean[] isTarget, int targetCount) {
+		int source = origins[row];
+		if(source < 0) {
+			Arrays.fill(distances[row], CompactGraph.UNREACHABLE);
+			return;
+		}
+
+		SearchWorkspace search = WORKSPACES.get();
+		if(search == null || search.size() != graph.size()) {
+			search = new SearchWorkspace(graph.size());
+			WORKSPACES.set(search);
+		}
+
+		// Settle towns until every destination has been settled
+		search.start(source);
+		int remaining = targetCount;
+		while(remaining > 0 && search.hasNext()) {
+			int u = search.next();
+			if(isTarget[u])
+				remaining--;
+
+			int du = search.distance(u);
+			for(int slot = graph.firstSlot(u); slot < graph.endSlot(u); slot++)
+				search.relax(graph.target(slot), du + graph.weight(slot), slot);
+		}
+
+		for(int column = 0; column < destinations.length; column++) {
+			int t = destinations[column];
+			distances[row][column] = t < 0 ? CompactGraph.UNREACHABLE : search.distance(t);
+		}
+
+		// Copy the tree for the path lookups
+		if(previousSlots != null) {
+			int[] prev = new int[graph.size()];
+			for(int t = 0; t < prev.length; t++)
+				prev[t] = search.distance(t) == CompactGraph.UNREACHABLE ? -1 : search.previousSlot(t);
+			previousSlots[row] = prev;
+		}
+	}
+
+	// Splits the origins in halves until each task has only a few
+	private class OriginTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final boolean[] isTarget;
+		private final int targetCount;
+
+		OriginTask(int from, int to, boolean[] isTarget, int targetCount) {
+			this.from = from;
+			this.to = to;
+			this.isTarget = isTarget;
+			this.targetCount = targetCount;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from <= ORIGINS_PER_TASK) {
+				for(int row = from; row < to; row++)
+					searchFrom(row, isTarget, targetCount);
+				return;
+			}
+
+			int mid = (from + to) >>> 1;
+			invokeAll(new OriginTask(from, mid, isTarget, targetCount), new OriginTask(mid, to, isTarget, targetCount));
+		}
+	}
+}
@@ -0,0 +1,31 @@
+/**
+ * This is a class that estimates road distance as the straight-line distance between the
+ * towns' x/y coordinates. Towns without coordinates get an estimate of 0.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class EuclideanHeuristic implements DistanceHeuristic {
+
+	private double milesPerUnit;
+
+	/**
+	 * Constructor
+	 * @param milesPerUnit miles per coordinate unit; roads must be at least as long as the
+	 * scaled straight line between their towns
+	 */
+	public EuclideanHeuristic(double milesPerUnit) {
+		this.milesPerUnit = milesPerUnit;
+	}
+
+	@Override
+	public int estimate(Town from, Town to) {
+		if(!from.hasLocation() || !to.hasLocation())
+			return 0;
+
+		double dx = from.getX() - to.getX();
+		double dy = from.getY() - to.getY();
+
+		// Round down so the estimate stays a lower bound on integer miles
+		return (int) Math.floor(Math.sqrt(dx * dx + dy * dy) * milesPerUnit);
+	}
+}
@@ -1,13 +1,18 @@
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 /**
  * This is a class that implements a Graph data structure using maps and sets.
  * @author Daniel Xu
@@ -16,16 +21,54 @@ import java.util.Set;
 
 public class Graph implements GraphInterface<Town, Road>{
 
-	private Map<Town, List<Town>> Graph;
+	// Adjacency index: each town maps its neighbors to the road joining them
+	private Map<Town, Map<Town, Road>> Graph;
 	private Set<Road> edges;
 
-	private Map<Town, Integer> edgeCost;
-	private Map<Town, Town> prevNodes;
+	// Towns by id. Ids of removed towns are handed out again, so the table stays dense.
+	private Town[] towns;
+	private int nextId;
+
+	// Ids of the towns by name. A town added to several graphs carries only the id the last
+	// one gave it, so its id in this graph is kept here.
+	private Map<Town, Integer> ids;
+	private int[] freeIds;
+	private int freeCount;
+
+	// Connected components by town id, rebuilt on demand after roads are removed
+	private final ComponentIndex components;
+	private volatile boolean componentsStale;
+
+	// Per-thread search state, grown to the largest graph searched
+	private static final ThreadLocal<SearchWorkspace[]> WORKSPACES = ThreadLocal.withInitial(() -> new SearchWorkspace[2]);
+
+	// Incremented on every change; tags snapshots with the version they copy
+	private volatile long modCount;
+	private volatile CompactGraph snapshot;
+
+	// Queries share the read lock, changes take the write lock
+	private final ReentrantReadWriteLock lock;
+
+	// Snapshot handed to restore whose towns and roads are not copied in until needed
+	private volatile CompactGraph restored;
+
+	// Shortest path trees of recently queried sources
+	private ShortestPathCache pathCache;
+
+	// Latencies and search counters, off until enabled
+	private final GraphMetrics metrics;
 
 	// Constructor
 	public Graph() {
 		Graph = new HashMap<>();
 		edges = new HashSet<>();
+		towns = new Town[16];
+		ids = new HashMap<>();
+		freeIds = new int[16];
+		components = new ComponentIndex(16);
+		pathCache = new ShortestPathCache(16);
+		lock = new ReentrantReadWriteLock();
+		metrics = new GraphMetrics(this);
 	}
 
 	@Override
@@ -44,14 +87,24 @@ public class Graph implements GraphInterface<Town, Road>{
 	 * @return an edge connecting source vertex to target vertex.
 	 */
 	public Road getEdge(Town sourceVertex, Town destinationVertex) {
-
-		// Find the road in the set
-		for(Road r: edges) {
-			if(r.contains(destinationVertex) && r.contains(sourceVertex))
-				return r;
+		copyRestored();
+		lock.readLock().lock();
+		try {
+			// If either vertex is null
+			if(sourceVertex == null || destinationVertex == null)
+				return null;
+
+			// Look the road up in the source vertex's index
+			Map<Town, Road> roads = Graph.get(sourceVertex);
+
+			// Return null if vertices do not exist.
+			if(roads == null)
+				return null;
+
+			return roads.get(destinationVertex);
+		} finally {
+			lock.readLock().unlock();
 		}
-		// Return null if vertices do not exist.
-		return null;
 	}
 
 	@Override
@@ -76,28 +129,46 @@ public class Graph implements GraphInterface<Town, Road>{
 	 * @throws NullPointerException if any of the specified vertices is null.
 	 */
 	public Road addEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
+		copyRestored();
+		lock.writeLock().lock();
+		try {
+			// If either specified vertex is null
+			if(sourceVertex == null || destinationVertex == null)
+				throw new NullPointerException();
+
+			// If source or target vertexes are not found in the graph.
+			if (!Graph.containsKey(sourceVertex) || !Graph.containsKey(destinationVertex)) {
+				throw new IllegalArgumentException();
+			}
 
-		// If source or target vertexes are not found in the graph.
-		if (Graph.get(sourceVertex).equals(null) || Graph.get(destinationVertex).equals(null)) {
-			throw new IllegalArgumentException();
-		}
+			// If the towns are already connected, the road is not added
+			if(Graph.get(sourceVertex).containsKey(destinationVertex))
+				return null;
 
-		// If either specified vertex is null
-		if(sourceVertex == null || destinationVertex == null)
-			throw new NullPointerException();
+			// Roads always join the graph's own town objects
+			int source = idOf(sourceVertex);
+			int destination = idOf(destinationVertex);
+			sourceVertex = towns[source];
+			destinationVertex = towns[destination];
 
-		Road r = new Road(sourceVertex, destinationVertex, weight, description);
+			Road r = new Road(sourceVertex, destinationVertex, weight, description);
 
-		// Add vertexes to adjacency list
-		Graph.get(sourceVertex).add(destinationVertex);
-		Graph.get(destinationVertex).add(sourceVertex);
-		sourceVertex.addAdjacentTown(destinationVertex);
-		destinationVertex.addAdjacentTown(sourceVertex);
+			// Index the road under both of its towns
+			Graph.get(sourceVertex).put(destinationVertex, r);
+			Graph.get(destinationVertex).put(sourceVertex, r);
+			sourceVertex.addAdjacentTown(destinationVertex);
+			destinationVertex.addAdjacentTown(sourceVertex);
 
-		edges.add(r);
+			edges.add(r);
+			r.setGraph(this);
+			components.union(source, destination);
+			modified();
 
-		return r;
+			return r;
 
+		} finally {
+			lock.writeLock().unlock();
+		}
 	}
 
 
@@ -119,18 +190,31 @@ public class Graph implements GraphInterface<Town, Road>{
 	 * @throws NullPointerException if the specified vertex is null.
 	 */
 	public boolean addVertex(Town v) {
-
-		// If the vertex is null
-		if(v == null)
-			throw new NullPointerException();
-
-		// If the vertex already exists
-		if(Graph.containsKey(v)) {
-			return false;
-		}else {
-			// Add the vertex
-			Graph.put(v, new LinkedList<Town>());
-			return true;
+		copyRestored();
+		lock.writeLock().lock();
+		try {
+			// If the vertex is null
+			if(v == null)
+				throw new NullPointerException();
+
+			// If the vertex already exists
+			if(Graph.containsKey(v)) {
+				return false;
+			}else {
+				// Add the vertex, giving it the id of a removed town if there is one
+				Graph.put(v, new HashMap<Town, Road>());
+				int id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+				if(id == towns.length)
+					towns = Arrays.copyOf(towns, towns.length * 2);
+				towns[id] = v;
+				ids.put(v, id);
+				v.setId(id);
+				components.add(id);
+				modified();
+				return true;
+			}
+		} finally {
+			lock.writeLock().unlock();
 		}
 	}
 
@@ -148,18 +232,21 @@ public class Graph implements GraphInterface<Town, Road>{
 	 * @return true if this graph contains the specified edge.
 	 */
 	public boolean containsEdge(Town sourceVertex, Town destinationVertex) {
-
-		// If either vertex is null
-		if(Graph.get(sourceVertex) == null || Graph.get(destinationVertex) == null)
-			return false;
-
-		// Locate the edge
-		for(Road r: edges) {
-			if(r.contains(destinationVertex) && r.contains(sourceVertex))
-				return true;
+		CompactGraph pending = restored;
+		if(pending != null)
+			return pending.roadBetween(sourceVertex, destinationVertex) >= 0;
+
+		lock.readLock().lock();
+		try {
+			// If either vertex is null
+			if(Graph.get(sourceVertex) == null || Graph.get(destinationVertex) == null)
+				return false;
+
+			// Locate the edge
+			return Graph.get(sourceVertex).containsKey(destinationVertex);
+		} finally {
+			lock.readLock().unlock();
 		}
-
-		return false;
 	}
 
 	@Override
@@ -174,12 +261,20 @@ public class Graph implements GraphInterface<Town, Road>{
 	 * @return true if this graph contains the specified vertex.
 	 */
 	public boolean containsVertex(Town v) {
-
-		// If vertex is null
-		if(v == null)
-			return false;
-
-		return Graph.containsKey(v);
+		CompactGraph pending = restored;
+		if(pending != null)
+			return pending.indexOf(v) >= 0;
+
+		lock.readLock().lock();
+		try {
+			// If vertex is null
+			if(v == null)
+				return false;
+
+			return Graph.containsKey(v);
+		} finally {
+			lock.readLock().unlock();
+		}
 	}
 
 
@@ -194,6 +289,7 @@ public class Graph implements GraphInterface<Town, Road>{
 	 * @return a set of the edges contained in this graph.
 	 */
 	public Set<Road> edgeSet() {
+		copyRestored();
 		return edges;
 	}
 
@@ -212,24 +308,22 @@ public class Graph implements GraphInterface<Town, Road>{
 	 * @throws NullPointerException if vertex is null.
 	 */
 	public Set<Road> edgesOf(Town vertex) {
-
-		// If vertex does not exist in the graph
-		if(!containsVertex(vertex))
-			throw new IllegalArgumentException();
-
-		// If vertex is null
-		if(vertex == null)
-			throw new NullPointerException();
-
-		// Create the set to return
-		Set<Road> returnThis = new HashSet<>();
-
-		// Add every edge of the vertex
-		for(Road r: edges) {
-			if(r.contains(vertex))
-				returnThis.add(r);
+		copyRestored();
+		lock.readLock().lock();
+		try {
+			// If vertex does not exist in the graph
+			if(!containsVertex(vertex))
+				throw new IllegalArgumentException();
+
+			// If vertex is null
+			if(vertex == null)
+				throw new NullPointerException();
+
+			// Copy the roads indexed under the vertex
+			return new HashSet<>(Graph.get(vertex).values());
+		} finally {
+			lock.readLock().unlock();
 		}
-		return returnThis;
 	}
 
 	@Override
@@ -251,30 +345,35 @@ public class Graph implements GraphInterface<Town, Road>{
 	 * @return The removed edge, or null if no edge removed.
 	 */
 	public Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
-		if (description == null || weight < -1) {
-			return null;
-		}
+		copyRestored();
+		lock.writeLock().lock();
+		try {
+			if (description == null || weight < -1) {
+				return null;
+			}
 
-		// Find the edge and remove it
-		Road removeThis = getEdge(sourceVertex, destinationVertex);
-		if (removeThis != null) {
-			edges.remove(removeThis);
+			// Find the edge and remove it
+			Road removeThis = getEdge(sourceVertex, destinationVertex);
+			if (removeThis != null) {
+				edges.remove(removeThis);
+				removeThis.setGraph(null);
+				componentsStale = true;
+				modified();
 
-			// Check the vertexes exist in the graph and remove them
-			if(Graph.get(sourceVertex) != null && Graph.get(destinationVertex) != null) {
-				Graph.get(sourceVertex).remove(sourceVertex);
-				Graph.get(destinationVertex).remove(destinationVertex);
-				Graph.replace(sourceVertex, null);
-				Graph.replace(destinationVertex, null);
+				// Drop the road from both towns' indexes
+				Graph.get(sourceVertex).remove(destinationVertex);
+				Graph.get(destinationVertex).remove(sourceVertex);
 
 				// Remove the towns from the adjacent towns list
-				sourceVertex.removeAdjacentTown(destinationVertex);
-				destinationVertex.removeAdjacentTown(sourceVertex);
+				removeThis.getSource().removeAdjacentTown(removeThis.getDestination());
+				removeThis.getDestination().removeAdjacentTown(removeThis.getSource());
 
 				return removeThis;
 			}
+			return null;
+		} finally {
+			lock.writeLock().unlock();
 		}
-		return null;
 	}
 
 
@@ -296,22 +395,40 @@ public class Graph implements GraphInterface<Town, Road>{
 	 * false otherwise.
 	 */
 	public boolean removeVertex(Town v) {
+		copyRestored();
+		lock.writeLock().lock();
+		try {
+			// If graph doesn't have the vertex
+			if(!Graph.containsKey(v))
+				return false;
+
+			int id = idOf(v);
 
-		// If graph doesn't have the vertex
-		if(!Graph.containsKey(v))
-			return false;
+			// Find adjacent edges and remove them.
+			Set<Road> adjacentEdges;
+			adjacentEdges = edgesOf(v);
 
-		// Find adjacent edges and remove them.
-		Set<Road> adjacentEdges;
-		adjacentEdges = edgesOf(v);
+			for(Road r: adjacentEdges) {
+				removeEdge(r.getSource(), r.getDestination(), r.getWeight(), r.getName());
+			}
 
-		for(Road r: adjacentEdges) {
-			removeEdge(r.getSource(), r.getDestination(), r.getWeight(), r.getName());
-			edges.remove(r);
+			// Free the town's id for the next town added, unless another graph has since given the town its own
+			if(towns[id].getId() == id)
+				towns[id].setId(-1);
+			towns[id] = null;
+			ids.remove(v);
+			if(freeCount == freeIds.length)
+				freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+			freeIds[freeCount++] = id;
+			componentsStale = true;
+
+			// Remove edge from graph
+			Graph.remove(v);
+			modified();
+			return true;
+		} finally {
+			lock.writeLock().unlock();
 		}
-		// Remove edge from graph
-		Graph.remove(v);
-		return true;
 	}
 
 	@Override
@@ -325,9 +442,442 @@ public class Graph implements GraphInterface<Town, Road>{
 	 * @return a set view of the vertices contained in this graph.
 	 */
 	public Set<Town> vertexSet() {
+		copyRestored();
 		return Graph.keySet();
 	}
 
+	/**
+	 * Returns the number of towns, the size of vertexSet, without copying in the roads of a
+	 * restored snapshot
+	 * @return the number of towns in the graph
+	 */
+	public int getTownCount() {
+		CompactGraph pending = restored;
+		if(pending != null)
+			return pending.size();
+
+		lock.readLock().lock();
+		try {
+			return Graph.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the town with the given id
+	 * @param id the town's id
+	 * @return the town, or null if no town of this graph has the id
+	 */
+	public Town getTown(int id) {
+		copyRestored();
+		return id >= 0 && id < nextId ? towns[id] : null;
+	}
+
+	/**
+	 * Returns the id of a town of this graph. The id a town carries is only trusted when
+	 * this graph's town with that id is the same object; copies, and towns another graph
+	 * has since added, are looked up by name.
+	 * @param v the town
+	 * @return its id, or -1 if the graph does not contain it
+	 */
+	int idOf(Town v) {
+		if(v == null)
+			return -1;
+
+		int id = v.getId();
+		if(id >= 0 && id < nextId && towns[id] == v)
+			return id;
+
+		Integer known = ids.get(v);
+		return known == null ? -1 : known;
+	}
+
+	/**
+	 * Returns the component index, first rebuilding it from the roads if any were removed
+	 * since it was last built. Called with the read or write lock held; readers that find
+	 * it stale rebuild it once between them.
+	 */
+	private ComponentIndex components() {
+		if(componentsStale) {
+			synchronized(components) {
+				if(componentsStale) {
+					components.clear(nextId);
+					for(int id = 0; id < nextId; id++) {
+						if(towns[id] != null)
+							components.add(id);
+					}
+					for(Road r: edges)
+						components.union(idOf(r.getSource()), idOf(r.getDestination()));
+					componentsStale = false;
+				}
+			}
+		}
+		return components;
+	}
+
+	/**
+	 * Returns true if a path of roads joins two towns. Answered from the component index
+	 * without a search, so unreachable pairs cost no more than reachable ones.
+	 * @param sourceVertex one town
+	 * @param destinationVertex the other town
+	 * @return true if both towns are in the graph and connected
+	 */
+	public boolean connected(Town sourceVertex, Town destinationVertex) {
+		CompactGraph pending = restored;
+		if(pending != null)
+			return pending.connected(sourceVertex, destinationVertex);
+
+		lock.readLock().lock();
+		try {
+			return components().connected(idOf(sourceVertex), idOf(destinationVertex));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of towns connected to a town, itself included
+	 * @param v the town
+	 * @return the size of its component, 0 if the town is not in the graph
+	 */
+	public int componentSize(Town v) {
+		copyRestored();
+		lock.readLock().lock();
+		try {
+			return components().componentSize(idOf(v));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Returns the number of connected components
+	public int getComponentCount() {
+		copyRestored();
+		lock.readLock().lock();
+		try {
+			return components().getComponentCount();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the size of every connected component, for capacity planning
+	 * @return the number of towns in each component, largest first
+	 */
+	public int[] componentSizes() {
+		copyRestored();
+		lock.readLock().lock();
+		try {
+			return components().getComponentSizes();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Returns this thread's i-th search workspace, large enough for every town id
+	private SearchWorkspace workspace(int i) {
+		SearchWorkspace[] workspaces = WORKSPACES.get();
+		if(workspaces[i] == null || workspaces[i].size() < nextId)
+			workspaces[i] = new SearchWorkspace(towns.length);
+		return workspaces[i];
+	}
+
+	/**
+	 * Changes the length of the road between two towns. Cached shortest path trees are
+	 * repaired rather than dropped, and only the towns whose shortest paths the change
+	 * affects are searched again.
+	 * @param sourceVertex one town of the road
+	 * @param destinationVertex the other town of the road
+	 * @param weight the new length
+	 * @return the road, or null if the towns are not joined by a road of this graph
+	 */
+	public Road setEdgeWeight(Town sourceVertex, Town destinationVertex, int weight) {
+		copyRestored();
+		lock.writeLock().lock();
+		try {
+			if(sourceVertex == null || destinationVertex == null || !Graph.containsKey(sourceVertex))
+				return null;
+
+			Road road = Graph.get(sourceVertex).get(destinationVertex);
+			if(road != null)
+				changeWeight(road, weight);
+			return road;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Called by a road of this graph to change its weight
+	void updateWeight(Road road, int weight) {
+		lock.writeLock().lock();
+		try {
+			changeWeight(road, weight);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Stores a road's new weight, patching the snapshot and repairing cached trees
+	private void changeWeight(Road road, int weight) {
+		int oldWeight = road.getWeight();
+		if(oldWeight == weight)
+			return;
+
+		long start = metrics.start();
+		road.assignWeight(weight);
+
+		CompactGraph current = snapshot;
+		modCount++;
+		if(current != null && current.getVersion() == modCount - 1)
+			snapshot = current.withRoadWeight(road, weight, modCount);
+
+		pathCache.forEach(tree -> repair(tree, road, oldWeight, weight));
+		metrics.record(GraphMetrics.Operation.SET_WEIGHT, start);
+	}
+
+	/**
+	 * Repairs a shortest path tree after a road's weight changed, in the style of
+	 * Ramalingam and Reps. A shorter road can only improve the towns it leads to, so
+	 * improvements are pushed outward from its far end. A longer road only matters if it
+	 * is in the tree, and then only to the subtree below it: those towns are reconnected
+	 * through their best neighbor outside the subtree and settled again among themselves.
+	 */
+	private void repair(ShortestPathTree tree, Road road, int oldWeight, int weight) {
+		Town u = road.getSource();
+		Town v = road.getDestination();
+		if(!tree.reaches(u) || !tree.reaches(v))
+			return;
+
+		Queue<Entry<Town, Integer>> queue = new PriorityQueue<>(new ValueComparator());
+
+		if(weight < oldWeight) {
+			for(Town[] end: new Town[][] { { u, v }, { v, u } }) {
+				int altPath = tree.getCost(end[0]) + weight;
+				if(altPath < tree.getCost(end[1])) {
+					tree.update(end[1], altPath, end[0]);
+					queue.add(new SimpleEntry<>(end[1], altPath));
+				}
+			}
+			settle(tree, queue, null);
+			return;
+		}
+
+		// Find the town below the road in the tree, if the road is in it
+		Town child = Objects.equals(tree.getPrevious(v), u) ? v : Objects.equals(tree.getPrevious(u), v) ? u : null;
+		if(child == null)
+			return;
+
+		// Collect the subtree hanging from the road
+		Set<Town> affected = new HashSet<>();
+		List<Town> stack = new ArrayList<>();
+		stack.add(child);
+		while(!stack.isEmpty()) {
+			Town current = stack.remove(stack.size() - 1);
+			affected.add(current);
+			for(Town neighbor: Graph.get(current).keySet()) {
+				if(Objects.equals(tree.getPrevious(neighbor), current))
+					stack.add(neighbor);
+			}
+		}
+		for(Town t: affected)
+			tree.forget(t);
+
+		// Reconnect each affected town through its best neighbor outside the subtree
+		for(Town t: affected) {
+			for(Entry<Town, Road> adjacent: Graph.get(t).entrySet()) {
+				Town neighbor = adjacent.getKey();
+				if(affected.contains(neighbor) || !tree.reaches(neighbor))
+					continue;
+
+				int altPath = tree.getCost(neighbor) + adjacent.getValue().getWeight();
+				if(altPath < tree.getCost(t)) {
+					tree.update(t, altPath, neighbor);
+					queue.add(new SimpleEntry<>(t, altPath));
+				}
+			}
+		}
+		settle(tree, queue, affected);
+	}
+
+	// Runs Dijkstra's algorithm from the queued towns, only improving towns in the region (all towns if null)
+	private void settle(ShortestPathTree tree, Queue<Entry<Town, Integer>> queue, Set<Town> region) {
+		while(!queue.isEmpty()) {
+			Entry<Town, Integer> entry = queue.poll();
+			Town currentTown = entry.getKey();
+
+			// Skip entries that were improved after being queued
+			int currentCost = entry.getValue();
+			if(currentCost > tree.getCost(currentTown))
+				continue;
+
+			for(Entry<Town, Road> adjacent: Graph.get(currentTown).entrySet()) {
+				Town neighbor = adjacent.getKey();
+				if(region != null && !region.contains(neighbor))
+					continue;
+
+				int altPath = currentCost + adjacent.getValue().getWeight();
+				if(altPath < tree.getCost(neighbor)) {
+					tree.update(neighbor, altPath, currentTown);
+					queue.add(new SimpleEntry<>(neighbor, altPath));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs a group of changes while holding the write lock once, so that a large number of
+	 * towns and roads can be added without readers seeing a half-loaded graph or the lock
+	 * being taken for every change
+	 * @param changes the changes to make, using this graph's methods
+	 */
+	public void batch(Runnable changes) {
+		copyRestored();
+		lock.writeLock().lock();
+		try {
+			changes.run();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Fills an empty graph with the towns and roads of a snapshot, such as one read with
+	 * CompactGraph.load. The snapshot is published as the graph's current one, so snapshot
+	 * queries are served from it straight away, as are containsVertex, containsEdge,
+	 * connected and shortestPath; its component index is built here, so connected never
+	 * searches. Its Town objects become this graph's towns and its roads are copied in only
+	 * when another method first needs them.
+	 * @param compact the snapshot to copy
+	 * @throws IllegalStateException if the graph already has towns
+	 */
+	public void restore(CompactGraph compact) {
+		lock.writeLock().lock();
+		try {
+			if(!Graph.isEmpty() || restored != null)
+				throw new IllegalStateException("graph is not empty");
+
+			modified();
+			restored = compact.withVersion(modCount);
+			restored.components();
+			snapshot = restored;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Copies the towns and roads of a restored snapshot into the graph. The graph's
+	 * contents do not change, so neither does its version and the snapshot stays current.
+	 * Called before taking the read lock, which cannot be upgraded.
+	 */
+	private void copyRestored() {
+		if(restored == null)
+			return;
+
+		lock.writeLock().lock();
+		try {
+			CompactGraph compact = restored;
+			if(compact == null)
+				return;
+			restored = null;
+			long version = modCount;
+
+			for(int u = 0; u < compact.size(); u++)
+				addVertex(compact.getTown(u));
+
+			// Every road is stored in both directions; add it from its first slot
+			boolean[] added = new boolean[compact.roadCount()];
+			for(int u = 0; u < compact.size(); u++) {
+				for(int slot = compact.firstSlot(u); slot < compact.endSlot(u); slot++) {
+					int road = compact.roadId(slot);
+					if(!added[road]) {
+						added[road] = true;
+						addEdge(compact.getTown(u), compact.getTown(compact.target(slot)), compact.weight(slot), compact.getRoadName(road));
+					}
+				}
+			}
+
+			modCount = version;
+			snapshot = compact;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Records a change to the graph, invalidating cached paths and snapshots
+	private void modified() {
+		modCount++;
+		pathCache.clear();
+	}
+
+	/**
+	 * Returns the version of this graph, which changes whenever a town, road or road
+	 * weight changes
+	 * @return the current version
+	 */
+	public long getVersion() {
+		return modCount;
+	}
+
+	/**
+	 * Returns the cache of shortest path trees used by shortestPath, which also
+	 * reports its hit and miss counts.
+	 * @return the shortest path tree cache
+	 */
+	public ShortestPathCache getPathCache() {
+		return pathCache;
+	}
+
+	/**
+	 * Returns the metrics of this graph's searches, which the TownGraphManager around it
+	 * also records its calls in. Metrics are off until enabled.
+	 * @return the graph's metrics
+	 */
+	public GraphMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Returns an immutable compressed-sparse-row snapshot of this graph for read-heavy
+	 * routing. The snapshot is only rebuilt if the graph has changed since the last call.
+	 * @return a snapshot of the current towns and roads
+	 */
+	public CompactGraph snapshot() {
+		CompactGraph current = snapshot;
+		if(current != null && current.getVersion() == modCount)
+			return current;
+
+		// While a change is being made, readers keep the last published version
+		if(current == null)
+			lock.readLock().lock();
+		else if(!lock.readLock().tryLock())
+			return current;
+
+		try {
+			synchronized(lock) {
+				if(snapshot == null || snapshot.getVersion() != modCount)
+					snapshot = new CompactGraph(this, modCount);
+				return snapshot;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Computes the road distance from every origin to every destination, running one
+	 * search per origin in parallel on a snapshot of the graph
+	 * @param origins origin towns
+	 * @param destinations destination towns
+	 * @param withPredecessors true to keep the data needed to rebuild each path
+	 * @return the distance matrix, indexed by origin then destination
+	 */
+	public DistanceMatrix distanceMatrix(List<Town> origins, List<Town> destinations, boolean withPredecessors) {
+		return new DistanceMatrix(snapshot(), origins, destinations, withPredecessors);
+	}
+
 	@Override
 	/**
 	 * Find the shortest path from the sourceVertex to the destinationVertex
@@ -344,9 +894,234 @@ public class Graph implements GraphInterface<Town, Road>{
 	 * Vertex_8 via Edge_9 to Vertex_10 2 (third string in ArrayList)
 	 */
 	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+		CompactGraph pending = restored;
+		if(pending != null) {
+			ArrayList<String> path = pending.shortestPath(sourceVertex, destinationVertex);
+			if(path == null)
+				throw new IllegalArgumentException("no path from " + sourceVertex + " to " + destinationVertex);
+			return path;
+		}
+
+		lock.readLock().lock();
+		try {
+			// Towns in different components have no path, which needs no search to tell
+			if(!components().connected(idOf(sourceVertex), idOf(destinationVertex)))
+				throw new IllegalArgumentException("no path from " + sourceVertex + " to " + destinationVertex);
+
+			// Reuse the cached tree for the source vertex, or call Dijkstra's algorithm
+			ShortestPathTree tree = pathCache.get(sourceVertex);
+			if(tree == null) {
+				tree = computeShortestPaths(sourceVertex);
+				pathCache.put(tree);
+			}
+
+			return pathTo(tree, destinationVertex);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns every town within a distance of a town, for coverage maps and isochrones
+	 * @param sourceVertex the town to measure from
+	 * @param maxMiles the largest distance to include
+	 * @return the towns and their distances, nearest first
+	 */
+	public Map<Town, Integer> townsWithin(Town sourceVertex, int maxMiles) {
+		copyRestored();
+		lock.readLock().lock();
+		try {
+			int source = idOf(sourceVertex);
+			if(source < 0)
+				throw new IllegalArgumentException();
+
+			// Towns are settled in order of distance, so no sorting is needed
+			Map<Town, Integer> result = new LinkedHashMap<>();
+			dijkstra(source, -1, maxMiles, (town, cost, previous) -> result.put(towns[town], cost));
+			return result;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Find the shortest path from the sourceVertex to the destinationVertex on the current
+	 * snapshot, as town and road ids. Callers that only need the distance or the towns
+	 * visited skip building the strings of shortestPath.
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the route, or null if either town is unknown or there is no path
+	 */
+	public Route route(Town sourceVertex, Town destinationVertex) {
+		if(!connected(sourceVertex, destinationVertex))
+			return null;
+		return snapshot().route(sourceVertex, destinationVertex);
+	}
+
+	/**
+	 * Find the k shortest loopless paths from the sourceVertex to the destinationVertex on
+	 * the current snapshot, shortest first, as alternatives to the single route(...)
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @param k number of paths wanted
+	 * @return up to k routes, fewer if there are no more; empty if either town is unknown
+	 * or there is no path
+	 */
+	public List<Route> kShortestPaths(Town sourceVertex, Town destinationVertex, int k) {
+		if(!connected(sourceVertex, destinationVertex))
+			return new ArrayList<>();
+		return new KShortestPaths(snapshot()).find(sourceVertex, destinationVertex, k);
+	}
+
+	/**
+	 * Finds a minimum spanning forest of the current snapshot: for each connected part of
+	 * the graph, the cheapest roads that still join all of its towns. Large graphs are
+	 * handled by a parallel Boruvka search, small ones by Kruskal's algorithm.
+	 * @return the forest's roads and total weight
+	 */
+	public SpanningForest minimumSpanningForest() {
+		return SpanningForest.of(snapshot());
+	}
 
-		// Call Dijkstra's algorithm with the source vertex
-		dijkstraShortestPath(sourceVertex);
+	/**
+	 * Find the shortest path from the sourceVertex to the destinationVertex with an A*
+	 * search, which expands towns in order of their cost so far plus the heuristic's
+	 * estimate of the remaining distance. With an admissible heuristic the path has the
+	 * same length as the one returned by shortestPath(sourceVertex, destinationVertex),
+	 * while usually settling far fewer towns.
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @param heuristic lower bound on the remaining distance to destinationVertex
+	 * @return An ArrayList of Strings in the same format as shortestPath
+	 */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex, DistanceHeuristic heuristic) {
+		copyRestored();
+		lock.readLock().lock();
+		try {
+			long start = metrics.start();
+			int settled = 0;
+			int relaxed = 0;
+
+			int source = idOf(sourceVertex);
+			int target = idOf(destinationVertex);
+			if(!components().connected(source, target))
+				throw new IllegalArgumentException("no path from " + sourceVertex + " to " + destinationVertex);
+
+			// Towns are queued by their cost plus the estimate, and reopened if a shorter path is found
+			SearchWorkspace search = workspace(0);
+			search.reset();
+			search.relax(source, 0, -1, heuristic.estimate(sourceVertex, destinationVertex));
+
+			while(search.hasNext()) {
+				int currentTown = search.next();
+
+				// Stop once the destination is settled
+				if(currentTown == target)
+					break;
+
+				int currentCost = search.distance(currentTown);
+				settled++;
+
+				for(Entry<Town, Road> adjacent: Graph.get(towns[currentTown]).entrySet()) {
+					Town neighbor = adjacent.getKey();
+					int altPath = currentCost + adjacent.getValue().getWeight();
+					relaxed++;
+
+					int id = idOf(neighbor);
+					if(altPath < search.distance(id))
+						search.relax(id, altPath, currentTown, altPath + heuristic.estimate(neighbor, destinationVertex));
+				}
+			}
+
+			metrics.recordSearch(GraphMetrics.Operation.A_STAR, start, settled, relaxed);
+			if(search.distance(target) == CompactGraph.UNREACHABLE)
+				throw new IllegalArgumentException("no path from " + sourceVertex + " to " + destinationVertex);
+			return pathThrough(pathIds(search, target));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Find the shortest path from the sourceVertex to the destinationVertex with a
+	 * bidirectional Dijkstra search. One search grows from each end, always advancing the
+	 * side with the smaller frontier key, and the searches stop as soon as the two smallest
+	 * frontier keys add up to at least the best connection found so far, which is then
+	 * provably shortest.
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return An ArrayList of Strings in the same format as shortestPath
+	 */
+	public ArrayList<String> bidirectionalShortestPath(Town sourceVertex, Town destinationVertex) {
+		copyRestored();
+		lock.readLock().lock();
+		try {
+			long start = metrics.start();
+			int settled = 0;
+			int relaxed = 0;
+
+			int source = idOf(sourceVertex);
+			int target = idOf(destinationVertex);
+			if(!components().connected(source, target))
+				throw new IllegalArgumentException("no path from " + sourceVertex + " to " + destinationVertex);
+
+			// The forward (0) and backward (1) searches
+			SearchWorkspace[] searches = { workspace(0), workspace(1) };
+			searches[0].start(source);
+			searches[1].start(target);
+
+			// Length of the best path found and the town where its two halves meet
+			int best = source == target ? 0 : Integer.MAX_VALUE;
+			int meeting = source;
+
+			while(searches[0].hasNext() && searches[1].hasNext()) {
+				int top0 = searches[0].peekDistance();
+				int top1 = searches[1].peekDistance();
+
+				// No unsettled town can lie on a shorter path
+				if((long) top0 + top1 >= best)
+					break;
+
+				// Advance the side with the smaller frontier
+				int side = top0 <= top1 ? 0 : 1;
+				SearchWorkspace search = searches[side];
+				int currentTown = search.next();
+				int currentCost = search.distance(currentTown);
+				settled++;
+
+				for(Entry<Town, Road> adjacent: Graph.get(towns[currentTown]).entrySet()) {
+					int neighbor = idOf(adjacent.getKey());
+					int altPath = currentCost + adjacent.getValue().getWeight();
+					relaxed++;
+					search.relax(neighbor, altPath, currentTown);
+
+					// Check whether the road connects to the other search
+					int otherCost = searches[1 - side].distance(neighbor);
+					if(otherCost != CompactGraph.UNREACHABLE && altPath + otherCost < best) {
+						best = altPath + otherCost;
+						meeting = neighbor;
+					}
+				}
+			}
+
+			metrics.recordSearch(GraphMetrics.Operation.BIDIRECTIONAL, start, settled, relaxed);
+			if(best == Integer.MAX_VALUE)
+				throw new IllegalArgumentException("no path from " + sourceVertex + " to " + destinationVertex);
+
+			// Chain the backward half, walked from the meeting town, onto the forward half
+			int[] forward = pathIds(searches[0], meeting);
+			int[] backward = pathIds(searches[1], meeting);
+			int[] path = Arrays.copyOf(forward, forward.length + backward.length - 1);
+			for(int i = 0; i < backward.length - 1; i++)
+				path[forward.length + i] = backward[backward.length - 2 - i];
+			return pathThrough(path);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Builds the path to the destination from a shortest path tree
+	private ArrayList<String> pathTo(ShortestPathTree tree, Town destinationVertex) {
 
 		// ArrayList of Strings to hold the results.
 		ArrayList<String> result = new ArrayList<>();
@@ -354,15 +1129,16 @@ public class Graph implements GraphInterface<Town, Road>{
 		// Create a variable to hold the previous town
 		Town prev = new Town();
 		Town current = destinationVertex;
+		Town sourceVertex = tree.getSource();
 
-		// Loop through the vertexes in the shortest path
-		while(current != sourceVertex) {
-			// Get the current road
-			prev = prevNodes.get(current);
-			Road r = getEdge(current, prev);
+		if(!tree.reaches(destinationVertex))
+			throw new IllegalArgumentException("no path from " + sourceVertex + " to " + destinationVertex);
 
+		// Loop through the vertexes in the shortest path
+		while(!current.equals(sourceVertex)) {
 			// Construct the string for the shortest path result
-			result.add(prev + " via " + r.getName() + " to " + current + " " + r.getWeight() + " mi");
+			prev = tree.getPrevious(current);
+			result.add(formatHop(prev, current));
 			current = prev;
 		}
 
@@ -372,6 +1148,33 @@ public class Graph implements GraphInterface<Town, Road>{
 		return result;
 	}
 
+	// Builds the path through the towns with the given ids
+	private ArrayList<String> pathThrough(int[] path) {
+		ArrayList<String> result = new ArrayList<>(path.length - 1);
+		for(int i = 0; i + 1 < path.length; i++)
+			result.add(formatHop(towns[path[i]], towns[path[i + 1]]));
+		return result;
+	}
+
+	// Describes the road between two adjacent towns: "A via Road to B 4 mi"
+	private String formatHop(Town from, Town to) {
+		// Get the road straight from the adjacency index
+		Road r = Graph.get(from).get(to);
+		return from + " via " + r.getName() + " to " + to + " " + r.getWeight() + " mi";
+	}
+
+	// Returns the ids of the towns on a search's path to a town, from the search's start
+	private static int[] pathIds(SearchWorkspace search, int town) {
+		int hops = 0;
+		for(int t = town; search.previousSlot(t) >= 0; t = search.previousSlot(t))
+			hops++;
+
+		int[] path = new int[hops + 1];
+		for(int t = town, i = hops; i >= 0; t = search.previousSlot(t), i--)
+			path[i] = t;
+		return path;
+	}
+
 	@Override
 	/**
 	 * Dijkstra's Shortest Path Method.  Internal structures are built which
@@ -381,78 +1184,96 @@ public class Graph implements GraphInterface<Town, Road>{
 	 *
 	 */
 	public void dijkstraShortestPath(Town sourceVertex) {
+		copyRestored();
+		lock.readLock().lock();
+		try {
+			pathCache.put(computeShortestPaths(sourceVertex));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
 
-	    // Stores the total cost to each vertex from source
-	    edgeCost = new HashMap<>();
-
-	    // Stores shortest path structure
-	    prevNodes = new HashMap<>();
-
-	    // Stores the processed vertexes
-	    Set<Town> visited = new HashSet<>();
-
-	    ValueComparator sortByValues = new ValueComparator();
-
-	    // Initialize cost of unvisited vertexes to infinity
-	    for(Town t: Graph.keySet()) {
-	        edgeCost.put(t, Integer.MAX_VALUE);
-	        prevNodes.put(t, null);
-	    }
-
-	    // Set the cost of the origin vertex to 0
-	    edgeCost.put(sourceVertex, 0);
-
-	    // Create a list of unvisited towns
-	    List<Entry<Town, Integer>> unvisitedTowns = new ArrayList<>(edgeCost.entrySet());
-
-	    unvisitedTowns.sort(sortByValues);
-
-	    // Initialize a queue to store the towns to be visited
-	    Queue<Town> queue = new LinkedList<>();
-	    queue.add(sourceVertex);
-
-	    // Loop until queue is empty
-	    while(!queue.isEmpty()) {
-
-	        Town currentTown = queue.poll();
-	        visited.add(currentTown);
-
-	        // Check all adjacent towns
-	        for(Town neighbor: currentTown.getAdjacentTown()) {
-
-	            int currentCost = edgeCost.get(currentTown);
-	            int adjWeight = getEdge(currentTown, neighbor).getWeight();
-
-	            // If town has not been processed
-	            if(!visited.contains(neighbor)) {
-
-	                // If cost is infinity
-	                if(currentCost == Integer.MAX_VALUE) {
-	                    edgeCost.replace(neighbor, adjWeight);
-	                    prevNodes.replace(neighbor, currentTown);
-	                }
+	/**
+	 * Runs Dijkstra's algorithm from the sourceVertex and returns the cost of, and
+	 * previous town on the shortest path to, every town it reaches. The result is
+	 * owned by the caller, so concurrent queries do not share any search state.
+	 * @param sourceVertex the vertex to find shortest paths from
+	 * @return the shortest path tree rooted at sourceVertex
+	 */
+	public ShortestPathTree computeShortestPaths(Town sourceVertex) {
+		return computeShortestPaths(sourceVertex, null, Integer.MAX_VALUE);
+	}
 
-	                else { // If cost not infinity
-	                    int altPath = currentCost + adjWeight;
+	/**
+	 * Runs Dijkstra's algorithm from the sourceVertex, stopping once the target is settled
+	 * and never following a path longer than maxMiles. The work grows with the number of
+	 * towns within reach rather than with the graph.
+	 * @param sourceVertex the vertex to find shortest paths from
+	 * @param target town to stop at once its shortest path is known, or null to not stop early
+	 * @param maxMiles longest path to follow
+	 * @return the shortest path tree of the towns settled, which are exactly the towns within
+	 * maxMiles when no target is given
+	 */
+	public ShortestPathTree computeShortestPaths(Town sourceVertex, Town target, int maxMiles) {
+		copyRestored();
+		lock.readLock().lock();
+		try {
+			int source = idOf(sourceVertex);
+			if(source < 0)
+				throw new IllegalArgumentException();
+
+			ShortestPathTree tree = new ShortestPathTree(this, towns[source], nextId);
+			dijkstra(source, target == null ? -1 : idOf(target), maxMiles,
+					(town, cost, previous) -> tree.update(towns[town], cost, previous < 0 ? null : towns[previous]));
+			return tree;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
 
-	                    // If alternative path has lower cost than prev cost
-	                    if(altPath < edgeCost.get(neighbor)) {
-	                        edgeCost.replace(neighbor, altPath);
-	                        prevNodes.replace(neighbor, currentTown);
-	                    }
-	                }
+	/**
+	 * This is an interface for receiving the towns a search settles
+	 */
+	private interface SettledTown {
+		void settle(int town, int cost, int previous);
+	}
 
-	                // Add adjacent vertex to queue
-	                if (!queue.contains(neighbor)) {
-	                    queue.add(neighbor);
-	                }
-	            }
-	        }
+	/**
+	 * Dijkstra's algorithm over town ids in this thread's workspace, so no state is
+	 * allocated or cleared per search. Hands each town to the visitor as it is settled, in
+	 * order of cost, stopping after the target (if not negative) and never following a
+	 * path longer than maxMiles. Called with the read lock held.
+	 */
+	private void dijkstra(int source, int target, int maxMiles, SettledTown visitor) {
+		long start = metrics.start();
+		int settled = 0;
+		int relaxed = 0;
+
+		SearchWorkspace search = workspace(0);
+		search.start(source);
+
+		while(search.hasNext()) {
+			int currentTown = search.next();
+			int currentCost = search.distance(currentTown);
+			visitor.settle(currentTown, currentCost, search.previousSlot(currentTown));
+			settled++;
+
+			// Stop at the target, keeping only the settled towns
+			if(currentTown == target)
+				break;
+
+			// Relax every road leaving the current town
+			for(Entry<Town, Road> adjacent: Graph.get(towns[currentTown]).entrySet()) {
+				int altPath = currentCost + adjacent.getValue().getWeight();
+				relaxed++;
+
+				// Settled towns already have a shorter path, and paths beyond reach are not followed
+				if(altPath <= maxMiles)
+					search.relax(idOf(adjacent.getKey()), altPath, currentTown);
+			}
+		}
 
-	        // Sort the cost of unvisited towns
-	        unvisitedTowns = new ArrayList<>(edgeCost.entrySet());
-	        unvisitedTowns.sort(sortByValues);
-	    }
+		metrics.recordSearch(GraphMetrics.Operation.DIJKSTRA, start, settled, relaxed);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,267 @@
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This is a class that records metrics of a Graph and the TownGraphManager around it:
+ * a latency histogram per operation, the towns settled and roads relaxed by searches,
+ * the size of the graph and the hit rate of its path cache. Metrics are disabled by
+ * default, and while disabled an operation only pays for reading one volatile flag.
+ *
+ * Instrumented code calls start() before an operation and record() after it:
+ *
+ *     long start = metrics.start();
+ *     ...
+ *     metrics.record(Operation.ADD_ROAD, start);
+ *
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class GraphMetrics implements GraphMetricsMXBean {
+
+	/**
+	 * Recorded operations
+	 */
+	public enum Operation {
+
+		// Graph searches, which also count settled towns and relaxed roads
+		DIJKSTRA,
+		A_STAR,
+		BIDIRECTIONAL,
+
+		// Road weight changes, including the repair of cached trees
+		SET_WEIGHT,
+
+		// TownGraphManager calls
+		GET_PATH,
+		ADD_ROAD,
+		DELETE_ROAD,
+		DELETE_TOWN
+	}
+
+	// Start time handed out while metrics are disabled
+	private static final long DISABLED = Long.MIN_VALUE;
+
+	private final Graph graph;
+	private volatile boolean enabled;
+
+	private final Map<Operation, LatencyHistogram> latencies;
+	private final LongAdder searches;
+	private final LongAdder settled;
+	private final LongAdder relaxed;
+	private final List<GraphMetricsListener> listeners;
+
+	private ObjectName registeredName;
+
+	// Constructor for the metrics of a graph
+	public GraphMetrics(Graph graph) {
+		this.graph = graph;
+		latencies = new EnumMap<>(Operation.class);
+		for(Operation operation: Operation.values())
+			latencies.put(operation, new LatencyHistogram());
+		searches = new LongAdder();
+		settled = new LongAdder();
+		relaxed = new LongAdder();
+		listeners = new CopyOnWriteArrayList<>();
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Returns the start time to pass to record once an operation completes
+	 * @return the current time, or a marker that makes record do nothing if disabled
+	 */
+	public long start() {
+		return enabled ? System.nanoTime() : DISABLED;
+	}
+
+	/**
+	 * Records a completed operation
+	 * @param operation the operation
+	 * @param start the value start() returned before it
+	 */
+	public void record(Operation operation, long start) {
+		recordSearch(operation, start, 0, 0);
+	}
+
+	/**
+	 * Records a completed search
+	 * @param operation the search
+	 * @param start the value start() returned before it
+	 * @param settledTowns towns the search settled
+	 * @param relaxedRoads roads the search relaxed
+	 */
+	public void recordSearch(Operation operation, long start, int settledTowns, int relaxedRoads) {
+		if(start == DISABLED)
+			return;
+
+		long nanos = System.nanoTime() - start;
+		latencies.get(operation).record(nanos);
+		if(operation.ordinal() <= Operation.BIDIRECTIONAL.ordinal()) {
+			searches.increment();
+			settled.add(settledTowns);
+			relaxed.add(relaxedRoads);
+		}
+
+		for(GraphMetricsListener listener: listeners)
+			listener.onOperation(operation, nanos, settledTowns, relaxedRoads);
+	}
+
+	// Returns the latency histogram of an operation, in nanoseconds
+	public LatencyHistogram getLatency(Operation operation) {
+		return latencies.get(operation);
+	}
+
+	public void addListener(GraphMetricsListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(GraphMetricsListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server as
+	 * "TownGraph:type=GraphMetrics,name=" followed by the given name
+	 * @param name name telling these metrics apart from other graphs'
+	 * @throws IllegalStateException if the name is taken or JMX refuses the bean
+	 */
+	public synchronized void register(String name) {
+		try {
+			ObjectName objectName = new ObjectName("TownGraph:type=GraphMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			registeredName = objectName;
+		} catch(JMException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Removes these metrics from the platform MBean server, if registered
+	public synchronized void unregister() {
+		if(registeredName == null)
+			return;
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+		} catch(JMException e) {
+			throw new IllegalStateException(e);
+		}
+		registeredName = null;
+	}
+
+	@Override
+	public int getTownCount() {
+		return graph.vertexSet().size();
+	}
+
+	@Override
+	public int getRoadCount() {
+		return graph.edgeSet().size();
+	}
+
+	@Override
+	public int getComponentCount() {
+		return graph.getComponentCount();
+	}
+
+	@Override
+	public int getLargestComponentSize() {
+		int[] sizes = graph.componentSizes();
+		return sizes.length == 0 ? 0 : sizes[0];
+	}
+
+	@Override
+	public long getGraphVersion() {
+		return graph.getVersion();
+	}
+
+	@Override
+	public long getCacheHits() {
+		return graph.getPathCache().getHits();
+	}
+
+	@Override
+	public long getCacheMisses() {
+		return graph.getPathCache().getMisses();
+	}
+
+	@Override
+	public double getCacheHitRate() {
+		return graph.getPathCache().getHitRate();
+	}
+
+	@Override
+	public long getSearches() {
+		return searches.sum();
+	}
+
+	@Override
+	public long getSettledTowns() {
+		return settled.sum();
+	}
+
+	@Override
+	public long getRelaxedRoads() {
+		return relaxed.sum();
+	}
+
+	@Override
+	public Map<String, Long> getOperationCounts() {
+		Map<String, Long> counts = new TreeMap<>();
+		for(Operation operation: Operation.values())
+			counts.put(operation.name(), latencies.get(operation).getCount());
+		return counts;
+	}
+
+	@Override
+	public Map<String, Double> getMeanMicros() {
+		return micros(LatencyHistogram::getMean);
+	}
+
+	@Override
+	public Map<String, Double> getP50Micros() {
+		return micros(h -> h.getPercentile(50));
+	}
+
+	@Override
+	public Map<String, Double> getP99Micros() {
+		return micros(h -> h.getPercentile(99));
+	}
+
+	@Override
+	public Map<String, Double> getMaxMicros() {
+		return micros(LatencyHistogram::getMax);
+	}
+
+	// Returns a statistic of every operation's latencies, converted to microseconds
+	private Map<String, Double> micros(ToDoubleFunction<LatencyHistogram> statistic) {
+		Map<String, Double> result = new TreeMap<>();
+		for(Operation operation: Operation.values())
+			result.put(operation.name(), statistic.applyAsDouble(latencies.get(operation)) / 1000);
+		return result;
+	}
+
+	@Override
+	public void reset() {
+		for(LatencyHistogram histogram: latencies.values())
+			histogram.reset();
+		searches.reset();
+		settled.reset();
+		relaxed.reset();
+	}
+}
@@ -0,0 +1,18 @@
+/**
+ * This is an interface for receiving every operation recorded by a GraphMetrics, such as
+ * to forward them to a monitoring system. Listeners are only called while metrics are
+ * enabled, on the thread that ran the operation, so they should return quickly.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public interface GraphMetricsListener {
+
+	/**
+	 * Called after an operation completes
+	 * @param operation the operation
+	 * @param nanos how long it took
+	 * @param settled towns settled by a search, 0 for other operations
+	 * @param relaxed roads relaxed by a search, 0 for other operations
+	 */
+	void onOperation(GraphMetrics.Operation operation, long nanos, int settled, int relaxed);
+}
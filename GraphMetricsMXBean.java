@@ -0,0 +1,48 @@
+import java.util.Map;
+
+/**
+ * This is the JMX management interface of GraphMetrics. Latencies are in microseconds and
+ * keyed by operation name.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public interface GraphMetricsMXBean {
+
+	boolean isEnabled();
+
+	void setEnabled(boolean enabled);
+
+	int getTownCount();
+
+	int getRoadCount();
+
+	int getComponentCount();
+
+	int getLargestComponentSize();
+
+	long getGraphVersion();
+
+	long getCacheHits();
+
+	long getCacheMisses();
+
+	double getCacheHitRate();
+
+	long getSearches();
+
+	long getSettledTowns();
+
+	long getRelaxedRoads();
+
+	Map<String, Long> getOperationCounts();
+
+	Map<String, Double> getMeanMicros();
+
+	Map<String, Double> getP50Micros();
+
+	Map<String, Double> getP99Micros();
+
+	Map<String, Double> getMaxMicros();
+
+	void reset();
+}
@@ -0,0 +1,191 @@
+import java.util.Arrays;
+
+/**
+ * This is a class that splits the towns of a CompactGraph snapshot into balanced regions
+ * with few roads between them, by recursive bisection. Each bisection grows one half by a
+ * breadth-first search from a town on the edge of the set, so the half is compact, and
+ * then moves boundary towns across while that cuts fewer roads and keeps the halves within
+ * a few percent of their target sizes.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class GraphPartitioner {
+
+	// How far a half may grow past its target size while refining
+	private static final double IMBALANCE = 0.03;
+
+	// Most refinement sweeps per bisection
+	private static final int REFINEMENT_PASSES = 8;
+
+	private final CompactGraph graph;
+
+	// Stamps marking the towns of the set being bisected, and the towns a search has reached
+	private final int[] members;
+	private final int[] reached;
+	private int generation;
+
+	private final boolean[] left;
+	private final int[] queue;
+
+	// Constructor
+	private GraphPartitioner(CompactGraph graph) {
+		this.graph = graph;
+		members = new int[graph.size()];
+		reached = new int[graph.size()];
+		left = new boolean[graph.size()];
+		queue = new int[graph.size()];
+	}
+
+	/**
+	 * Splits the towns into regions
+	 * @param graph the snapshot
+	 * @param regions number of regions
+	 * @return the region of each town, indexed by snapshot id
+	 * @throws IllegalArgumentException if regions is not positive
+	 */
+	public static int[] partition(CompactGraph graph, int regions) {
+		if(regions < 1)
+			throw new IllegalArgumentException("regions must be positive: " + regions);
+
+		int[] region = new int[graph.size()];
+		int[] towns = new int[graph.size()];
+		for(int t = 0; t < towns.length; t++)
+			towns[t] = t;
+		new GraphPartitioner(graph).bisect(towns, 0, regions, region);
+		return region;
+	}
+
+	/**
+	 * Counts the roads whose towns are in different regions
+	 * @param graph the snapshot
+	 * @param region the region of each town
+	 * @return the number of cut roads
+	 */
+	public static int cutRoads(CompactGraph graph, int[] region) {
+		int cut = 0;
+		for(int u = 0; u < graph.size(); u++) {
+			for(int slot = graph.firstSlot(u); slot < graph.endSlot(u); slot++) {
+				int v = graph.target(slot);
+				if(u < v && region[u] != region[v])
+					cut++;
+			}
+		}
+		return cut;
+	}
+
+	// Splits the towns into the regions first to first + count - 1
+	private void bisect(int[] towns, int first, int count, int[] region) {
+		if(count == 1) {
+			for(int t: towns)
+				region[t] = first;
+			return;
+		}
+
+		int leftCount = count / 2;
+		int leftSize = (int) ((long) towns.length * leftCount / count);
+
+		int set = ++generation;
+		for(int t: towns)
+			members[t] = set;
+
+		grow(towns, leftSize);
+		refine(towns, leftSize);
+
+		int[] leftTowns = new int[towns.length];
+		int[] rightTowns = new int[towns.length];
+		int l = 0;
+		int r = 0;
+		for(int t: towns) {
+			if(left[t])
+				leftTowns[l++] = t;
+			else
+				rightTowns[r++] = t;
+		}
+		bisect(Arrays.copyOf(leftTowns, l), first, leftCount, region);
+		bisect(Arrays.copyOf(rightTowns, r), first + leftCount, count - leftCount, region);
+	}
+
+	// Puts the first size towns of a breadth-first search in the left half
+	private void grow(int[] towns, int size) {
+		for(int t: towns)
+			left[t] = false;
+		if(size == 0)
+			return;
+
+		// Start from the last town reached from the first one, which lies on the set's edge
+		int start = towns[0];
+		int tail = search(start, Integer.MAX_VALUE);
+		start = queue[tail - 1];
+
+		int taken = 0;
+		int next = 0;
+		while(taken < size) {
+			int found = search(start, size - taken);
+			for(int i = 0; i < found; i++)
+				left[queue[i]] = true;
+			taken += found;
+
+			// Continue in the next part of the set the search could not reach
+			while(taken < size && left[towns[next]])
+				next++;
+			start = towns[next];
+		}
+	}
+
+	/**
+	 * Runs a breadth-first search over the set's towns that are not in the left half yet,
+	 * leaving the towns in reach order at the start of the queue
+	 * @return the number of towns reached, at most limit
+	 */
+	private int search(int start, int limit) {
+		int stamp = ++generation;
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = start;
+		reached[start] = stamp;
+
+		while(head < tail && tail < limit) {
+			int u = queue[head++];
+			for(int slot = graph.firstSlot(u); slot < graph.endSlot(u) && tail < limit; slot++) {
+				int v = graph.target(slot);
+				if(members[v] == members[start] && reached[v] != stamp && !left[v]) {
+					reached[v] = stamp;
+					queue[tail++] = v;
+				}
+			}
+		}
+		return tail;
+	}
+
+	// Moves boundary towns to the side most of their roads lead to, within the size bounds
+	private void refine(int[] towns, int leftSize) {
+		int slack = (int) Math.ceil(towns.length * IMBALANCE);
+		int minLeft = Math.max(0, leftSize - slack);
+		int maxLeft = Math.min(towns.length, leftSize + slack);
+		int size = leftSize;
+
+		for(int pass = 0; pass < REFINEMENT_PASSES; pass++) {
+			int moved = 0;
+			for(int t: towns) {
+				int gain = 0;
+				for(int slot = graph.firstSlot(t); slot < graph.endSlot(t); slot++) {
+					int v = graph.target(slot);
+					if(members[v] == members[t])
+						gain += left[v] == left[t] ? -1 : 1;
+				}
+				if(gain <= 0)
+					continue;
+
+				int after = left[t] ? size - 1 : size + 1;
+				if(after < minLeft || after > maxLeft)
+					continue;
+
+				left[t] = !left[t];
+				size = after;
+				moved++;
+			}
+			if(moved == 0)
+				break;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+/**
+ * This is a class that estimates road distance as the great-circle distance between the
+ * towns, reading x as longitude and y as latitude in degrees. Towns without coordinates
+ * get an estimate of 0.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class GreatCircleHeuristic implements DistanceHeuristic {
+
+	// Mean radius of the earth in miles
+	private static final double EARTH_RADIUS = 3958.8;
+
+	@Override
+	public int estimate(Town from, Town to) {
+		if(!from.hasLocation() || !to.hasLocation())
+			return 0;
+
+		// Haversine formula
+		double lat1 = Math.toRadians(from.getY());
+		double lat2 = Math.toRadians(to.getY());
+		double dLat = lat2 - lat1;
+		double dLon = Math.toRadians(to.getX() - from.getX());
+
+		double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+				+ Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+		double miles = 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(h)));
+
+		// Round down so the estimate stays a lower bound on integer miles
+		return (int) Math.floor(miles);
+	}
+}
@@ -0,0 +1,139 @@
+import java.util.Arrays;
+
+/**
+ * This is a class that implements an indexed 4-ary min-heap of int items keyed by int
+ * priorities. Items are dense ids in [0, capacity), each present at most once, so a
+ * lower key can be applied in place (decrease-key) instead of pushing a duplicate.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class IntMinHeap {
+
+	private static final int ARITY = 4;
+
+	private int[] heap;
+	private int[] keys;
+	private int[] positions;
+	private int size;
+
+	// Constructor for items 0 to capacity - 1
+	public IntMinHeap(int capacity) {
+		heap = new int[capacity];
+		keys = new int[capacity];
+		positions = new int[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	// Returns true if no items are queued
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	// Returns the number of queued items
+	public int size() {
+		return size;
+	}
+
+	// Returns true if the item is queued
+	public boolean contains(int item) {
+		return positions[item] >= 0;
+	}
+
+	// Returns the smallest key in the heap
+	public int peekKey() {
+		return keys[heap[0]];
+	}
+
+	/**
+	 * Queues the item with the given key, or lowers its key if it is already queued
+	 * with a higher one.
+	 * @param item item to queue
+	 * @param key priority of the item
+	 * @return true if the item was queued or its key lowered
+	 */
+	public boolean offer(int item, int key) {
+		int pos = positions[item];
+
+		if(pos < 0) {
+			pos = size++;
+			heap[pos] = item;
+			positions[item] = pos;
+		}
+		else if(key >= keys[item]) {
+			return false;
+		}
+
+		keys[item] = key;
+		siftUp(pos);
+		return true;
+	}
+
+	/**
+	 * Removes and returns the item with the smallest key.
+	 * @return the item with the smallest key
+	 */
+	public int poll() {
+		int top = heap[0];
+		positions[top] = -1;
+
+		// Move the last item to the root and restore the heap order
+		if(--size > 0) {
+			heap[0] = heap[size];
+			positions[heap[0]] = 0;
+			siftDown(0);
+		}
+		return top;
+	}
+
+	// Empties the heap, touching only the items that are still queued
+	public void clear() {
+		for(int i = 0; i < size; i++)
+			positions[heap[i]] = -1;
+		size = 0;
+	}
+
+	// Moves the item at pos up until its parent has a smaller key
+	private void siftUp(int pos) {
+		int item = heap[pos];
+		int key = keys[item];
+
+		while(pos > 0) {
+			int parent = (pos - 1) / ARITY;
+			if(keys[heap[parent]] <= key)
+				break;
+			heap[pos] = heap[parent];
+			positions[heap[pos]] = pos;
+			pos = parent;
+		}
+		heap[pos] = item;
+		positions[item] = pos;
+	}
+
+	// Moves the item at pos down until its children have larger keys
+	private void siftDown(int pos) {
+		int item = heap[pos];
+		int key = keys[item];
+
+		while(true) {
+			int first = pos * ARITY + 1;
+			if(first >= size)
+				break;
+
+			// Find the child with the smallest key
+			int best = first;
+			int last = Math.min(first + ARITY, size);
+			for(int c = first + 1; c < last; c++) {
+				if(keys[heap[c]] < keys[heap[best]])
+					best = c;
+			}
+
+			if(keys[heap[best]] >= key)
+				break;
+			heap[pos] = heap[best];
+			positions[heap[pos]] = pos;
+			pos = best;
+		}
+		heap[pos] = item;
+		positions[item] = pos;
+	}
+}
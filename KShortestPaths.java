@@ -0,0 +1,387 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * This is a class that finds the k shortest loopless routes between two towns of a
+ * CompactGraph snapshot with Yen's algorithm. Each new route branches off an earlier one
+ * at a spur town: the towns before the spur are blocked, as are the roads the earlier
+ * routes sharing that prefix took out of it, and the rest is searched again.
+ *
+ * One reverse Dijkstra search from the destination gives every town's exact distance to
+ * it and a tree of shortest paths into it. Those distances are lower bounds once towns
+ * and roads are blocked, so a spur whose bound cannot beat the routes already in hand is
+ * skipped, and when the best road out of the spur leads into a tree path clear of the
+ * blocked towns that path is taken without searching. Only the other spurs run an A*
+ * search guided by the bounds, and the spurs of a route are handled in parallel.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class KShortestPaths {
+
+	private final CompactGraph graph;
+
+	// One spur search workspace per thread
+	private final ThreadLocal<SpurSearch> searches;
+
+	// Constructor
+	public KShortestPaths(CompactGraph graph) {
+		this.graph = graph;
+		searches = ThreadLocal.withInitial(() -> new SpurSearch(graph.size()));
+	}
+
+	/**
+	 * Finds up to k shortest loopless routes, shortest first
+	 * @param sourceVertex starting town
+	 * @param destinationVertex ending town
+	 * @param k number of routes wanted
+	 * @return the routes; fewer than k if there are no more, empty if either town is
+	 * unknown or the towns are not connected
+	 */
+	public List<Route> find(Town sourceVertex, Town destinationVertex, int k) {
+		List<Route> result = new ArrayList<>();
+		int source = graph.indexOf(sourceVertex);
+		int target = graph.indexOf(destinationVertex);
+		if(source < 0 || target < 0 || k <= 0)
+			return result;
+
+		// Distances to the target, and the road slot each town's next hop towards it arrives by
+		int[] toTarget = new int[graph.size()];
+		int[] towardSlot = new int[graph.size()];
+		graph.dijkstra(target, -1, toTarget, towardSlot);
+		if(toTarget[source] == CompactGraph.UNREACHABLE)
+			return result;
+
+		// The town of each next hop, so following the tree needs no slot lookups
+		int[] toward = new int[graph.size()];
+		for(int u = 0; u < graph.size(); u++) {
+			for(int slot = graph.firstSlot(u); slot < graph.endSlot(u); slot++) {
+				int v = graph.target(slot);
+				if(v != target && toTarget[v] != CompactGraph.UNREACHABLE && towardSlot[v] == slot)
+					toward[v] = u;
+			}
+		}
+		Tree tree = new Tree(toTarget, towardSlot, toward);
+
+		// Routes found so far, and candidates for the next ones
+		List<Candidate> found = new ArrayList<>();
+		PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+		Set<Candidate> seen = new HashSet<>();
+
+		Candidate first = searches.get().search(null, 0, 0, source, target, tree, found, CompactGraph.UNREACHABLE);
+		found.add(first);
+		seen.add(first);
+
+		while(found.size() < k) {
+			Candidate last = found.get(found.size() - 1);
+
+			// Spurs only need to beat the candidate that would otherwise complete the k routes
+			int bound = bound(candidates, k - found.size());
+
+			List<Candidate> spurs = IntStream.range(0, last.towns.length - 1).parallel()
+					.mapToObj(i -> {
+						int rootCost = last.costTo(i);
+						if((long) rootCost + toTarget[last.towns[i]] >= bound)
+							return null;
+						return searches.get().search(last, i, rootCost, last.towns[i], target, tree, found, bound);
+					})
+					.collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+
+			for(Candidate c: spurs) {
+				if(c != null && seen.add(c))
+					candidates.add(c);
+			}
+			if(candidates.isEmpty())
+				break;
+			found.add(candidates.poll());
+		}
+
+		for(Candidate c: found)
+			result.add(c.toRoute(graph));
+		return result;
+	}
+
+	// Returns the cost of the needed-th cheapest candidate, or UNREACHABLE if there are fewer
+	private static int bound(PriorityQueue<Candidate> candidates, int needed) {
+		if(candidates.size() < needed)
+			return CompactGraph.UNREACHABLE;
+
+		int[] costs = new int[candidates.size()];
+		int i = 0;
+		for(Candidate c: candidates)
+			costs[i++] = c.cost;
+		Arrays.sort(costs);
+		return costs[needed - 1];
+	}
+
+	/**
+	 * This is a class that holds the reverse search from the target: each town's distance
+	 * to it, and the slot and town of the town's next hop towards it
+	 */
+	private static class Tree {
+		final int[] toTarget;
+		final int[] towardSlot;
+		final int[] toward;
+
+		Tree(int[] toTarget, int[] towardSlot, int[] toward) {
+			this.toTarget = toTarget;
+			this.towardSlot = towardSlot;
+			this.toward = toward;
+		}
+	}
+
+	/**
+	 * This is a class that holds a route as its towns and the roads and miles between them
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+		final int[] towns;
+		final int[] roads;
+		final int[] miles;
+		final int cost;
+
+		Candidate(int[] towns, int[] roads, int[] miles, int cost) {
+			this.towns = towns;
+			this.roads = roads;
+			this.miles = miles;
+			this.cost = cost;
+		}
+
+		// Returns the length of the route up to its i-th town
+		int costTo(int i) {
+			int cost = 0;
+			for(int j = 0; j < i; j++)
+				cost += miles[j];
+			return cost;
+		}
+
+		// Returns true if this route goes on past its i-th town and starts like the other up to there
+		boolean sharesPrefix(Candidate other, int i) {
+			return towns.length > i + 1 && Arrays.equals(towns, 0, i + 1, other.towns, 0, i + 1);
+		}
+
+		Route toRoute(CompactGraph graph) {
+			Route.Builder route = new Route.Builder(graph, towns[0]);
+			for(int j = 0; j < roads.length; j++)
+				route.add(roads[j], towns[j + 1], miles[j]);
+			return route.build();
+		}
+
+		@Override
+		public int compareTo(Candidate o) {
+			if(cost != o.cost)
+				return Integer.compare(cost, o.cost);
+			return Integer.compare(towns.length, o.towns.length);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Candidate && Arrays.equals(towns, ((Candidate) o).towns);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(towns);
+		}
+	}
+
+	/**
+	 * This is a class that holds the reusable state of a spur search, with generation
+	 * stamps so that starting a search does not clear the arrays
+	 */
+	private class SpurSearch {
+		private final int[] dist;
+		private final int[] prevSlot;
+		private final int[] stamps;
+		private final int[] blocked;
+		private final IntMinHeap heap;
+		private int generation;
+
+		// Roads blocked out of the spur
+		private int[] blockedRoads = new int[8];
+		private int blockedCount;
+
+		// Hops of the spur path found, from the spur to the target
+		private int[] hopTowns = new int[16];
+		private int[] hopRoads = new int[16];
+		private int[] hopMiles = new int[16];
+		private int hops;
+
+		SpurSearch(int size) {
+			dist = new int[size];
+			prevSlot = new int[size];
+			stamps = new int[size];
+			blocked = new int[size];
+			heap = new IntMinHeap(size);
+		}
+
+		/**
+		 * Finds the shortest spur path from the i-th town of the root route, avoiding the
+		 * root's earlier towns and the roads that found routes sharing the root take next.
+		 * A null root searches from the source with nothing blocked.
+		 * @return the root's first i hops joined to the spur path, or null if there is no
+		 * spur path shorter than bound
+		 */
+		Candidate search(Candidate root, int i, int rootCost, int spur, int target, Tree tree, List<Candidate> found, int bound) {
+			if(++generation == Integer.MAX_VALUE) {
+				Arrays.fill(stamps, 0);
+				Arrays.fill(blocked, 0);
+				generation = 1;
+			}
+			hops = 0;
+			if(spur == target)
+				return candidate(root, i, rootCost, spur);
+
+			// Block the spur and the towns before it, and the roads found routes take out of it
+			for(int j = 0; j < i; j++)
+				blocked[root.towns[j]] = generation;
+			blocked[spur] = generation;
+			blockedCount = 0;
+			for(Candidate c: found) {
+				if(c.sharesPrefix(root, i))
+					blockRoad(c.roads[i]);
+			}
+
+			int[] toTarget = tree.toTarget;
+
+			// The best road out of the spur, by its miles plus the distance on to the target
+			int bestSlot = -1;
+			long best = CompactGraph.UNREACHABLE;
+			for(int slot = graph.firstSlot(spur); slot < graph.endSlot(spur); slot++) {
+				int v = graph.target(slot);
+				if(blocked[v] == generation || toTarget[v] == CompactGraph.UNREACHABLE || isBlocked(graph.roadId(slot)))
+					continue;
+
+				long cost = (long) graph.weight(slot) + toTarget[v];
+				if(cost < best) {
+					best = cost;
+					bestSlot = slot;
+				}
+			}
+			if(bestSlot < 0 || rootCost + best >= bound)
+				return null;
+
+			// No spur path is shorter than that road followed by its tree path, if the path is clear
+			if(followTree(bestSlot, target, tree))
+				return candidate(root, i, rootCost, spur);
+			return aStar(root, i, rootCost, spur, target, toTarget, bound);
+		}
+
+		// Takes a road and then the tree path to the target, returning false if the path meets a blocked town
+		private boolean followTree(int slot, int target, Tree tree) {
+			addHop(graph.target(slot), graph.roadId(slot), graph.weight(slot));
+			for(int t = graph.target(slot); t != target; ) {
+				int next = tree.towardSlot[t];
+				t = tree.toward[t];
+				if(blocked[t] == generation)
+					return false;
+				addHop(t, graph.roadId(next), graph.weight(next));
+			}
+			return true;
+		}
+
+		// Searches from the spur with A*, guided by the distances to the target
+		private Candidate aStar(Candidate root, int i, int rootCost, int spur, int target, int[] toTarget, int bound) {
+			heap.clear();
+			dist[spur] = rootCost;
+			stamps[spur] = generation;
+			heap.offer(spur, rootCost + toTarget[spur]);
+
+			while(!heap.isEmpty() && heap.peekKey() < bound) {
+				int u = heap.poll();
+				if(u == target) {
+					walkBack(spur, target);
+					return candidate(root, i, rootCost, spur);
+				}
+
+				for(int slot = graph.firstSlot(u); slot < graph.endSlot(u); slot++) {
+					int v = graph.target(slot);
+					if(blocked[v] == generation || toTarget[v] == CompactGraph.UNREACHABLE || (u == spur && isBlocked(graph.roadId(slot))))
+						continue;
+
+					int alt = dist[u] + graph.weight(slot);
+					if(stamps[v] != generation || alt < dist[v]) {
+						dist[v] = alt;
+						prevSlot[v] = slot;
+						stamps[v] = generation;
+						heap.offer(v, alt + toTarget[v]);
+					}
+				}
+			}
+			return null;
+		}
+
+		// Records the hops of the path the A* search found from the spur to the target
+		private void walkBack(int spur, int target) {
+			hops = 0;
+			for(int t = target; t != spur; ) {
+				int slot = prevSlot[t];
+				addHop(t, graph.roadId(slot), graph.weight(slot));
+				t = graph.townOfSlot(slot);
+			}
+
+			// The hops were added from the target back, so reverse them
+			for(int a = 0, b = hops - 1; a < b; a++, b--) {
+				swap(hopTowns, a, b);
+				swap(hopRoads, a, b);
+				swap(hopMiles, a, b);
+			}
+		}
+
+		private void blockRoad(int road) {
+			if(blockedCount == blockedRoads.length)
+				blockedRoads = Arrays.copyOf(blockedRoads, blockedCount * 2);
+			blockedRoads[blockedCount++] = road;
+		}
+
+		private boolean isBlocked(int road) {
+			for(int j = 0; j < blockedCount; j++) {
+				if(blockedRoads[j] == road)
+					return true;
+			}
+			return false;
+		}
+
+		private void addHop(int town, int road, int miles) {
+			if(hops == hopTowns.length) {
+				hopTowns = Arrays.copyOf(hopTowns, hops * 2);
+				hopRoads = Arrays.copyOf(hopRoads, hops * 2);
+				hopMiles = Arrays.copyOf(hopMiles, hops * 2);
+			}
+			hopTowns[hops] = town;
+			hopRoads[hops] = road;
+			hopMiles[hops] = miles;
+			hops++;
+		}
+
+		// Joins the root's first i hops, which end at the spur, and the spur path
+		private Candidate candidate(Candidate root, int i, int rootCost, int spur) {
+			int[] towns = new int[i + hops + 1];
+			int[] roads = new int[i + hops];
+			int[] miles = new int[i + hops];
+			int cost = rootCost;
+
+			if(root != null) {
+				System.arraycopy(root.towns, 0, towns, 0, i);
+				System.arraycopy(root.roads, 0, roads, 0, i);
+				System.arraycopy(root.miles, 0, miles, 0, i);
+			}
+			towns[i] = spur;
+			System.arraycopy(hopTowns, 0, towns, i + 1, hops);
+			System.arraycopy(hopRoads, 0, roads, i, hops);
+			System.arraycopy(hopMiles, 0, miles, i, hops);
+			for(int j = 0; j < hops; j++)
+				cost += hopMiles[j];
+			return new Candidate(towns, roads, miles, cost);
+		}
+	}
+
+	private static void swap(int[] values, int a, int b) {
+		int value = values[a];
+		values[a] = values[b];
+		values[b] = value;
+	}
+}
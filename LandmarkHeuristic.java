@@ -0,0 +1,106 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This is a class that implements ALT (A*, landmarks, triangle inequality) lower bounds.
+ * Distances from a few landmark towns are precomputed, and for every landmark L the
+ * triangle inequality gives |d(L, to) - d(L, from)| as a lower bound on d(from, to).
+ * The bounds describe the graph as it was when the heuristic was built, so it should be
+ * rebuilt after roads are removed or made shorter.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class LandmarkHeuristic implements DistanceHeuristic {
+
+	private CompactGraph snapshot;
+	private List<Town> landmarks;
+
+	// Distances from each landmark to every town, indexed by snapshot town id
+	private int[][] distances;
+
+	/**
+	 * Builds the heuristic from the given landmark towns
+	 * @param graph the graph to route on
+	 * @param landmarks towns to measure distances from
+	 */
+	public LandmarkHeuristic(Graph graph, List<Town> landmarks) {
+		snapshot = graph.snapshot();
+		this.landmarks = new ArrayList<>(landmarks);
+		distances = new int[landmarks.size()][];
+
+		for(int i = 0; i < distances.length; i++)
+			distances[i] = snapshot.distancesFrom(landmarks.get(i));
+	}
+
+	/**
+	 * Builds the heuristic from landmarks picked by farthest-point selection: each new
+	 * landmark is the town farthest from the landmarks chosen so far.
+	 * @param graph the graph to route on
+	 * @param count number of landmarks to pick
+	 */
+	public LandmarkHeuristic(Graph graph, int count) {
+		snapshot = graph.snapshot();
+		landmarks = new ArrayList<>();
+		List<int[]> found = new ArrayList<>();
+
+		if(snapshot.size() > 0) {
+			// Start from the town farthest from an arbitrary town
+			int[] seed = snapshot.distancesFrom(snapshot.getTown(0));
+			int[] nearest = new int[snapshot.size()];
+			Arrays.fill(nearest, CompactGraph.UNREACHABLE);
+			int next = farthest(seed, null);
+
+			while(landmarks.size() < count && next >= 0) {
+				int[] dist = snapshot.distancesFrom(snapshot.getTown(next));
+				landmarks.add(snapshot.getTown(next));
+				found.add(dist);
+
+				// Track each town's distance to its nearest landmark
+				for(int t = 0; t < nearest.length; t++)
+					nearest[t] = Math.min(nearest[t], dist[t]);
+				next = farthest(nearest, dist);
+			}
+		}
+		distances = found.toArray(new int[0][]);
+	}
+
+	// Returns the towns used as landmarks
+	public List<Town> getLandmarks() {
+		return landmarks;
+	}
+
+	@Override
+	public int estimate(Town from, Town to) {
+		int u = snapshot.indexOf(from);
+		int v = snapshot.indexOf(to);
+		if(u < 0 || v < 0)
+			return 0;
+
+		int best = 0;
+		for(int[] dist: distances) {
+			// Landmarks that cannot reach both towns give no bound
+			if(dist[u] == CompactGraph.UNREACHABLE || dist[v] == CompactGraph.UNREACHABLE)
+				continue;
+			best = Math.max(best, Math.abs(dist[v] - dist[u]));
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the town with the largest finite value in dist, preferring towns reachable
+	 * from the last landmark, or -1 if every reachable town is already a landmark
+	 */
+	private int farthest(int[] dist, int[] last) {
+		int best = -1;
+		for(int t = 0; t < dist.length; t++) {
+			if(dist[t] == CompactGraph.UNREACHABLE || dist[t] == 0)
+				continue;
+			if(last != null && last[t] == CompactGraph.UNREACHABLE)
+				continue;
+			if(best < 0 || dist[t] > dist[best])
+				best = t;
+		}
+		return best;
+	}
+}
@@ -0,0 +1,108 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This is a class that implements a thread-safe latency histogram in the style of
+ * HdrHistogram. Values are counted in log-linear buckets: every power of two is split into
+ * 32 equal buckets, so any recorded value is reported within about 3% while the whole
+ * range of a long fits in a fixed array. Recording is lock-free and allocation-free.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class LatencyHistogram {
+
+	// Each power of two is split into 2^SUB_BITS buckets
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private final AtomicLongArray counts;
+	private final LongAdder count;
+	private final LongAdder sum;
+	private final LongAccumulator max;
+
+	// Constructor
+	public LatencyHistogram() {
+		counts = new AtomicLongArray((64 - SUB_BITS + 1) * SUB_BUCKETS);
+		count = new LongAdder();
+		sum = new LongAdder();
+		max = new LongAccumulator(Math::max, 0);
+	}
+
+	/**
+	 * Records one value
+	 * @param nanos the value, negative values are counted as 0
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(value));
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	// Returns the number of recorded values
+	public long getCount() {
+		return count.sum();
+	}
+
+	// Returns the mean of the recorded values, or 0 if there are none
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) sum.sum() / n;
+	}
+
+	// Returns the largest recorded value
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns the value below which the given percentage of recorded values fall
+	 * @param percentile between 0 and 100
+	 * @return the middle of the bucket holding that value, or 0 if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		long n = count.sum();
+		if(n == 0)
+			return 0;
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+		long seen = 0;
+		for(int bucket = 0; bucket < counts.length(); bucket++) {
+			seen += counts.get(bucket);
+			if(seen >= rank)
+				return Math.min(max.get(), lowestValue(bucket) + bucketWidth(bucket) / 2);
+		}
+		return max.get();
+	}
+
+	// Forgets every recorded value
+	public void reset() {
+		for(int bucket = 0; bucket < counts.length(); bucket++)
+			counts.set(bucket, 0);
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+
+	// Returns the bucket of a value: the values below 64 each have their own
+	private static int bucketOf(long value) {
+		int exponent = 63 - Long.numberOfLeadingZeros(value | SUB_BUCKETS);
+		int shift = exponent - SUB_BITS;
+		return (shift << SUB_BITS) + (int) (value >>> shift);
+	}
+
+	// Returns the smallest value counted in a bucket
+	private static long lowestValue(int bucket) {
+		if(bucket < 2 * SUB_BUCKETS)
+			return bucket;
+		int shift = (bucket >> SUB_BITS) - 1;
+		return (long) (bucket - (shift << SUB_BITS)) << shift;
+	}
+
+	// Returns the number of values counted in a bucket
+	private static long bucketWidth(int bucket) {
+		return bucket < 2 * SUB_BUCKETS ? 1 : 1L << ((bucket >> SUB_BITS) - 1);
+	}
+}
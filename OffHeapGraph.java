@@ -0,0 +1,1067 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This is a class that implements a Graph data structure whose towns, roads and names live
+ * outside the Java heap, in direct ByteBuffers or in files mapped into memory. Each town
+ * and road is a fixed-size record indexed by a dense id; the roads of a town form a linked
+ * list threaded through the road records, and towns are found by name through an
+ * open-addressing hash table of town ids. The heap holds no per-town or per-road objects,
+ * so its size and the GC's work stay flat as the network grows.
+ *
+ * Town and Road objects are flyweights: they are created from the records on access and
+ * are not kept. Two views of the same town are equal, but a flyweight's adjacent town list
+ * is empty and setting a flyweight road's weight does not change the graph; use
+ * setEdgeWeight instead. Names of removed towns and roads are not reclaimed.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class OffHeapGraph implements GraphInterface<Town, Road>, AutoCloseable {
+
+	// Town record: name offset, name length, name hash, first road, degree, flags, x, y
+	private static final int TOWN_BYTES = 48;
+	private static final int TOWN_NAME = 0;
+	private static final int TOWN_NAME_LENGTH = 8;
+	private static final int TOWN_HASH = 12;
+	private static final int TOWN_FIRST_ROAD = 16;
+	private static final int TOWN_DEGREE = 20;
+	private static final int TOWN_FLAGS = 24;
+	private static final int TOWN_X = 32;
+	private static final int TOWN_Y = 40;
+
+	// Road record: name offset, name length, both towns, weight, next road of each town, flags
+	private static final int ROAD_BYTES = 40;
+	private static final int ROAD_NAME = 0;
+	private static final int ROAD_NAME_LENGTH = 8;
+	private static final int ROAD_FROM = 12;
+	private static final int ROAD_TO = 16;
+	private static final int ROAD_WEIGHT = 20;
+	private static final int ROAD_NEXT_FROM = 24;
+	private static final int ROAD_NEXT_TO = 28;
+	private static final int ROAD_FLAGS = 32;
+
+	private static final int ALIVE = 1;
+	private static final int LOCATED = 2;
+
+	// Hash table slots hold town id + 1; removed entries are marked so probes continue past them
+	private static final int EMPTY = 0;
+	private static final int REMOVED = -1;
+
+	private final Memory townRecords;
+	private final Memory roadRecords;
+	private final Memory names;
+	private Memory index;
+	private int indexCapacity;
+	private int indexUsed;
+
+	// High-water marks of the ids handed out, and heads of the lists of freed ids
+	private int nextTown;
+	private int nextRoad;
+	private int freeTowns = -1;
+	private int freeRoads = -1;
+	private int townCount;
+	private int roadCount;
+	private long nameBytes;
+
+	// Incremented on every change, so a thread's last search is reused only while it is current
+	private volatile long modCount;
+
+	// Per-thread search state
+	private static final ThreadLocal<LastSearch> SEARCHES = ThreadLocal.withInitial(LastSearch::new);
+
+	// Queries share the read lock, changes take the write lock
+	private final ReentrantReadWriteLock lock;
+
+	// Set by close, after which every operation is refused
+	private boolean closed;
+
+	// Constructor for a graph held in direct memory
+	public OffHeapGraph() {
+		townRecords = new Memory(null);
+		roadRecords = new Memory(null);
+		names = new Memory(null);
+		lock = new ReentrantReadWriteLock();
+		resizeIndex(16);
+	}
+
+	/**
+	 * Creates a graph held in files mapped into memory, for networks larger than the
+	 * machine's RAM. The files are scratch space: any existing ones are truncated.
+	 * @param directory directory for the town, road and name files
+	 * @throws IOException if the files cannot be created
+	 */
+	public OffHeapGraph(Path directory) throws IOException {
+		Files.createDirectories(directory);
+		townRecords = new Memory(open(directory.resolve("towns.dat")));
+		roadRecords = new Memory(open(directory.resolve("roads.dat")));
+		names = new Memory(open(directory.resolve("names.dat")));
+		lock = new ReentrantReadWriteLock();
+		resizeIndex(16);
+	}
+
+	private static FileChannel open(Path file) throws IOException {
+		return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	@Override
+	/**
+	 * Returns an edge connecting source vertex to target vertex if such
+	 * vertices and such edge exist in this graph. Otherwise returns
+	 * null. If any of the specified vertices is null
+	 * returns null
+	 *
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 *
+	 * @return a flyweight of the edge connecting source vertex to target vertex.
+	 */
+	public Road getEdge(Town sourceVertex, Town destinationVertex) {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			int road = roadBetween(idOf(sourceVertex), idOf(destinationVertex));
+			return road < 0 ? null : road(road);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Creates a new edge in this graph, going from the source vertex to the
+	 * target vertex, and returns the created edge.
+	 *
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 * @param weight weight of the edge
+	 * @param description description for edge
+	 *
+	 * @return a flyweight of the newly created edge if added to the graph, otherwise null.
+	 *
+	 * @throws IllegalArgumentException if source or target vertices are not
+	 * found in the graph.
+	 * @throws NullPointerException if any of the specified vertices is null.
+	 */
+	public Road addEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			if(sourceVertex == null || destinationVertex == null)
+				throw new NullPointerException();
+
+			int from = idOf(sourceVertex);
+			int to = idOf(destinationVertex);
+			if(from < 0 || to < 0)
+				throw new IllegalArgumentException();
+
+			// If the towns are already connected, the road is not added
+			if(roadBetween(from, to) >= 0)
+				return null;
+
+			int road = freeRoads >= 0 ? freeRoads : nextRoad++;
+			long at = (long) road * ROAD_BYTES;
+			if(road == freeRoads)
+				freeRoads = roadRecords.getInt(at + ROAD_NEXT_FROM);
+			else
+				roadRecords.ensure(at + ROAD_BYTES);
+
+			// A road without a name is stored with length -1
+			byte[] name = description == null ? new byte[0] : description.getBytes(StandardCharsets.UTF_8);
+			roadRecords.putLong(at + ROAD_NAME, appendName(name));
+			roadRecords.putInt(at + ROAD_NAME_LENGTH, description == null ? -1 : name.length);
+			roadRecords.putInt(at + ROAD_FROM, from);
+			roadRecords.putInt(at + ROAD_TO, to);
+			roadRecords.putInt(at + ROAD_WEIGHT, weight);
+			roadRecords.putInt(at + ROAD_FLAGS, ALIVE);
+
+			// Push the road on the front of both towns' lists
+			roadRecords.putInt(at + ROAD_NEXT_FROM, townInt(from, TOWN_FIRST_ROAD));
+			setTownInt(from, TOWN_FIRST_ROAD, road);
+			setTownInt(from, TOWN_DEGREE, townInt(from, TOWN_DEGREE) + 1);
+			if(to != from) {
+				roadRecords.putInt(at + ROAD_NEXT_TO, townInt(to, TOWN_FIRST_ROAD));
+				setTownInt(to, TOWN_FIRST_ROAD, road);
+				setTownInt(to, TOWN_DEGREE, townInt(to, TOWN_DEGREE) + 1);
+			} else {
+				roadRecords.putInt(at + ROAD_NEXT_TO, -1);
+			}
+
+			roadCount++;
+			modCount++;
+			return road(road);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Adds the specified vertex to this graph if not already present. Its name and
+	 * coordinates are copied into the graph.
+	 *
+	 * @param v vertex to be added to this graph.
+	 *
+	 * @return true if this graph did not already contain the specified
+	 * vertex.
+	 *
+	 * @throws NullPointerException if the specified vertex is null.
+	 */
+	public boolean addVertex(Town v) {
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			if(v == null)
+				throw new NullPointerException();
+			if(idOf(v) >= 0)
+				return false;
+
+			int town = freeTowns >= 0 ? freeTowns : nextTown++;
+			long at = (long) town * TOWN_BYTES;
+			if(town == freeTowns)
+				freeTowns = townRecords.getInt(at + TOWN_FIRST_ROAD);
+			else
+				townRecords.ensure(at + TOWN_BYTES);
+
+			byte[] name = v.getName().getBytes(StandardCharsets.UTF_8);
+			townRecords.putLong(at + TOWN_NAME, appendName(name));
+			townRecords.putInt(at + TOWN_NAME_LENGTH, name.length);
+			townRecords.putInt(at + TOWN_HASH, v.getName().hashCode());
+			townRecords.putInt(at + TOWN_FIRST_ROAD, -1);
+			townRecords.putInt(at + TOWN_DEGREE, 0);
+			townRecords.putDouble(at + TOWN_X, v.getX());
+			townRecords.putDouble(at + TOWN_Y, v.getY());
+
+			// Index the town before marking it alive, so a rebuild of the index does not add it twice
+			insertIndex(town);
+			townRecords.putInt(at + TOWN_FLAGS, ALIVE | (v.hasLocation() ? LOCATED : 0));
+			townCount++;
+			modCount++;
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Returns true if and only if this graph contains an edge going
+	 * from the source vertex to the target vertex. If any of
+	 * the specified vertices does not exist in the graph, or if is
+	 * null, returns false.
+	 *
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 *
+	 * @return true if this graph contains the specified edge.
+	 */
+	public boolean containsEdge(Town sourceVertex, Town destinationVertex) {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			return roadBetween(idOf(sourceVertex), idOf(destinationVertex)) >= 0;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Returns true if this graph contains a town with the same name as the specified
+	 * vertex. If the specified vertex is null returns false.
+	 *
+	 * @param v vertex whose presence in this graph is to be tested.
+	 *
+	 * @return true if this graph contains the specified vertex.
+	 */
+	public boolean containsVertex(Town v) {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			return idOf(v) >= 0;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Returns a set view of the edges contained in this graph. The set is backed by
+	 * the graph and creates a flyweight for each edge as it is iterated. If the graph
+	 * is modified while an iteration over the set is in progress, the results
+	 * of the iteration are undefined.
+	 *
+	 * @return a set of the edges contained in this graph.
+	 */
+	public Set<Road> edgeSet() {
+		return new AbstractSet<Road>() {
+			@Override
+			public int size() {
+				lock.readLock().lock();
+				try {
+					checkOpen();
+					return roadCount;
+				} finally {
+					lock.readLock().unlock();
+				}
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				if(!(o instanceof Road))
+					return false;
+				Road r = (Road) o;
+				return containsEdge(r.getSource(), r.getDestination());
+			}
+
+			@Override
+			public Iterator<Road> iterator() {
+				return new RecordIterator<Road>() {
+					@Override
+					int limit() {
+						return nextRoad;
+					}
+
+					@Override
+					boolean alive(int id) {
+						return roadAlive(id);
+					}
+
+					@Override
+					Road view(int id) {
+						return road(id);
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	/**
+	 * Returns a set of all edges touching the specified vertex. If no edges are
+	 * touching the specified vertex returns an empty set.
+	 *
+	 * @param vertex the vertex for which a set of touching edges is to be
+	 * returned.
+	 *
+	 * @return a set of flyweights of all edges touching the specified vertex.
+	 *
+	 * @throws IllegalArgumentException if vertex is not found in the graph.
+	 * @throws NullPointerException if vertex is null.
+	 */
+	public Set<Road> edgesOf(Town vertex) {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			int town = idOf(vertex);
+			if(town < 0)
+				throw new IllegalArgumentException();
+
+			Set<Road> roads = new HashSet<>();
+			for(int r = townInt(town, TOWN_FIRST_ROAD); r >= 0; r = nextRoad(r, town))
+				roads.add(road(r));
+			return roads;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Removes an edge going from source vertex to target vertex, if such
+	 * vertices and such edge exist in this graph.
+	 *
+	 * @param sourceVertex source vertex of the edge.
+	 * @param destinationVertex target vertex of the edge.
+	 * @param weight weight of the edge
+	 * @param description description of the edge
+	 *
+	 * @return a flyweight of the removed edge, or null if no edge removed.
+	 */
+	public Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			if(description == null || weight < -1)
+				return null;
+
+			int road = roadBetween(idOf(sourceVertex), idOf(destinationVertex));
+			if(road < 0)
+				return null;
+
+			Road removed = road(road);
+			unlinkRoad(road);
+			return removed;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Removes the specified vertex from this graph including all its touching
+	 * edges if present.
+	 *
+	 * @param v vertex to be removed from this graph, if present.
+	 *
+	 * @return true if the graph contained the specified vertex;
+	 * false otherwise.
+	 */
+	public boolean removeVertex(Town v) {
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			int town = idOf(v);
+			if(town < 0)
+				return false;
+
+			while(townInt(town, TOWN_FIRST_ROAD) >= 0)
+				unlinkRoad(townInt(town, TOWN_FIRST_ROAD));
+
+			removeIndex(town);
+			setTownInt(town, TOWN_FLAGS, 0);
+			setTownInt(town, TOWN_FIRST_ROAD, freeTowns);
+			freeTowns = town;
+			townCount--;
+			modCount++;
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Returns a set view of the vertices contained in this graph. The set is backed by
+	 * the graph and creates a flyweight for each vertex as it is iterated. If the graph
+	 * is modified while an iteration over the set is in progress, the results of the
+	 * iteration are undefined.
+	 *
+	 * @return a set view of the vertices contained in this graph.
+	 */
+	public Set<Town> vertexSet() {
+		return new AbstractSet<Town>() {
+			@Override
+			public int size() {
+				lock.readLock().lock();
+				try {
+					checkOpen();
+					return townCount;
+				} finally {
+					lock.readLock().unlock();
+				}
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof Town && containsVertex((Town) o);
+			}
+
+			@Override
+			public Iterator<Town> iterator() {
+				return new RecordIterator<Town>() {
+					@Override
+					int limit() {
+						return nextTown;
+					}
+
+					@Override
+					boolean alive(int id) {
+						return townAlive(id);
+					}
+
+					@Override
+					Town view(int id) {
+						return town(id);
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	/**
+	 * Find the shortest path from the sourceVertex to the destinationVertex
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return An ArrayList of Strings that describe the path from sourceVertex
+	 * to destinationVertex, in the format "A via Road to B 4 mi"
+	 * @throws IllegalArgumentException if either town is unknown or there is no path
+	 */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			int source = idOf(sourceVertex);
+			int target = idOf(destinationVertex);
+			if(source < 0 || target < 0)
+				throw new IllegalArgumentException("no path from " + sourceVertex + " to " + destinationVertex);
+
+			LastSearch last = SEARCHES.get();
+			if(!last.covers(this, source))
+				search(last, source, target);
+
+			SearchWorkspace search = last.workspace;
+			if(search.distance(target) == Integer.MAX_VALUE)
+				throw new IllegalArgumentException("no path from " + sourceVertex + " to " + destinationVertex);
+
+			// Walk back along the roads used to reach each town
+			ArrayList<String> path = new ArrayList<>();
+			for(int town = target; town != source; ) {
+				int road = search.previousSlot(town);
+				int previous = otherEnd(road, town);
+				path.add(townName(previous) + " via " + roadName(road) + " to " + townName(town) + " "
+						+ roadRecords.getInt((long) road * ROAD_BYTES + ROAD_WEIGHT) + " mi");
+				town = previous;
+			}
+			Collections.reverse(path);
+			return path;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	/**
+	 * Runs Dijkstra's algorithm from the sourceVertex over every reachable town. The
+	 * result is kept in the calling thread's search state, so later shortestPath calls
+	 * from the same source on the same thread need no search until the graph changes.
+	 * @param sourceVertex the vertex to find shortest paths from
+	 */
+	public void dijkstraShortestPath(Town sourceVertex) {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			int source = idOf(sourceVertex);
+			if(source >= 0)
+				search(SEARCHES.get(), source, -1);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Changes the length of the road between two towns
+	 * @param sourceVertex one town of the road
+	 * @param destinationVertex the other town of the road
+	 * @param weight the new length
+	 * @return a flyweight of the changed road, or null if the towns are not joined by a road
+	 */
+	public Road setEdgeWeight(Town sourceVertex, Town destinationVertex, int weight) {
+		lock.writeLock().lock();
+		try {
+			checkOpen();
+			int road = roadBetween(idOf(sourceVertex), idOf(destinationVertex));
+			if(road < 0)
+				return null;
+
+			roadRecords.putInt((long) road * ROAD_BYTES + ROAD_WEIGHT, weight);
+			modCount++;
+			return road(road);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the town with the given id
+	 * @param id the town's id
+	 * @return a flyweight of the town, or null if no town of this graph has the id
+	 */
+	public Town getTown(int id) {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			return id >= 0 && id < nextTown && townAlive(id) ? town(id) : null;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	// Returns the number of bytes of memory or file reserved for the records, names and index
+	public long getMemoryBytes() {
+		lock.readLock().lock();
+		try {
+			checkOpen();
+			return townRecords.capacity() + roadRecords.capacity() + names.capacity() + index.capacity();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Closes the graph: every later operation throws IllegalStateException. The files are
+	 * closed and the buffers dropped, so direct memory and file mappings are released once
+	 * the buffers are collected. Closing a closed graph does nothing.
+	 */
+	@Override
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			closed = true;
+			townRecords.close();
+			roadRecords.close();
+			names.close();
+			index.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Called with the lock held
+	private void checkOpen() {
+		if(closed)
+			throw new IllegalStateException("graph is closed");
+	}
+
+	// Runs Dijkstra's algorithm, stopping once the target (if not negative) is settled
+	private void search(LastSearch last, int source, int target) {
+		SearchWorkspace search = last.workspace(nextTown);
+		search.start(source);
+		while(search.hasNext()) {
+			int u = search.next();
+			if(u == target) {
+				last.remember(this, source, false);
+				return;
+			}
+
+			int du = search.distance(u);
+			for(int r = townInt(u, TOWN_FIRST_ROAD); r >= 0; r = nextRoad(r, u))
+				search.relax(otherEnd(r, u), du + roadRecords.getInt((long) r * ROAD_BYTES + ROAD_WEIGHT), r);
+		}
+		last.remember(this, source, true);
+	}
+
+	// Returns the id of the road joining two towns, or -1; walks the list of the town with fewer roads
+	private int roadBetween(int a, int b) {
+		if(a < 0 || b < 0)
+			return -1;
+		if(townInt(a, TOWN_DEGREE) > townInt(b, TOWN_DEGREE)) {
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+
+		for(int r = townInt(a, TOWN_FIRST_ROAD); r >= 0; r = nextRoad(r, a)) {
+			if(otherEnd(r, a) == b)
+				return r;
+		}
+		return -1;
+	}
+
+	// Removes a road from both towns' lists and frees its id
+	private void unlinkRoad(int road) {
+		long at = (long) road * ROAD_BYTES;
+		int from = roadRecords.getInt(at + ROAD_FROM);
+		int to = roadRecords.getInt(at + ROAD_TO);
+		unlinkFrom(road, from);
+		if(to != from)
+			unlinkFrom(road, to);
+
+		roadRecords.putInt(at + ROAD_FLAGS, 0);
+		roadRecords.putInt(at + ROAD_NEXT_FROM, freeRoads);
+		freeRoads = road;
+		roadCount--;
+		modCount++;
+	}
+
+	// Removes a road from one town's list
+	private void unlinkFrom(int road, int town) {
+		int next = nextRoad(road, town);
+		int previous = -1;
+		for(int r = townInt(town, TOWN_FIRST_ROAD); r != road; r = nextRoad(r, town))
+			previous = r;
+
+		if(previous < 0)
+			setTownInt(town, TOWN_FIRST_ROAD, next);
+		else
+			setNextRoad(previous, town, next);
+		setTownInt(town, TOWN_DEGREE, townInt(town, TOWN_DEGREE) - 1);
+	}
+
+	// Returns the road after r in the list of the given town, one of its ends
+	private int nextRoad(int r, int town) {
+		long at = (long) r * ROAD_BYTES;
+		return roadRecords.getInt(at + (roadRecords.getInt(at + ROAD_FROM) == town ? ROAD_NEXT_FROM : ROAD_NEXT_TO));
+	}
+
+	private void setNextRoad(int r, int town, int next) {
+		long at = (long) r * ROAD_BYTES;
+		roadRecords.putInt(at + (roadRecords.getInt(at + ROAD_FROM) == town ? ROAD_NEXT_FROM : ROAD_NEXT_TO), next);
+	}
+
+	// Returns the end of road r that is not the given town
+	private int otherEnd(int r, int town) {
+		long at = (long) r * ROAD_BYTES;
+		int from = roadRecords.getInt(at + ROAD_FROM);
+		return from == town ? roadRecords.getInt(at + ROAD_TO) : from;
+	}
+
+	private int townInt(int town, int field) {
+		return townRecords.getInt((long) town * TOWN_BYTES + field);
+	}
+
+	private void setTownInt(int town, int field, int value) {
+		townRecords.putInt((long) town * TOWN_BYTES + field, value);
+	}
+
+	private boolean townAlive(int town) {
+		return (townInt(town, TOWN_FLAGS) & ALIVE) != 0;
+	}
+
+	private boolean roadAlive(int road) {
+		return (roadRecords.getInt((long) road * ROAD_BYTES + ROAD_FLAGS) & ALIVE) != 0;
+	}
+
+	// Creates a flyweight of a town, carrying its id
+	private Town town(int id) {
+		long at = (long) id * TOWN_BYTES;
+		Town town = new Town(townName(id));
+		if((townRecords.getInt(at + TOWN_FLAGS) & LOCATED) != 0)
+			town.setLocation(townRecords.getDouble(at + TOWN_X), townRecords.getDouble(at + TOWN_Y));
+		town.setId(id);
+		return town;
+	}
+
+	// Creates a flyweight of a road and its towns
+	private Road road(int id) {
+		long at = (long) id * ROAD_BYTES;
+		return new Road(town(roadRecords.getInt(at + ROAD_FROM)), town(roadRecords.getInt(at + ROAD_TO)),
+				roadRecords.getInt(at + ROAD_WEIGHT), roadName(id));
+	}
+
+	private String townName(int id) {
+		long at = (long) id * TOWN_BYTES;
+		return names.getString(townRecords.getLong(at + TOWN_NAME), townRecords.getInt(at + TOWN_NAME_LENGTH));
+	}
+
+	private String roadName(int id) {
+		long at = (long) id * ROAD_BYTES;
+		int length = roadRecords.getInt(at + ROAD_NAME_LENGTH);
+		return length < 0 ? null : names.getString(roadRecords.getLong(at + ROAD_NAME), length);
+	}
+
+	// Stores a name and returns its offset
+	private long appendName(byte[] name) {
+		long at = nameBytes;
+		names.ensure(at + name.length);
+		names.put(at, name);
+		nameBytes += name.length;
+		return at;
+	}
+
+	/**
+	 * Returns the id of a town of this graph. A flyweight's id is checked against the
+	 * record it names; other towns are looked up by name in the hash table.
+	 * @param v the town
+	 * @return its id, or -1 if the graph does not contain it
+	 */
+	private int idOf(Town v) {
+		if(v == null)
+			return -1;
+
+		String name = v.getName();
+		int hash = name.hashCode();
+		int id = v.getId();
+		if(id >= 0 && id < nextTown && townAlive(id) && townInt(id, TOWN_HASH) == hash && townName(id).equals(name))
+			return id;
+
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		int mask = indexCapacity - 1;
+		for(int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+			int entry = index.getInt(slot * 4L);
+			if(entry == EMPTY)
+				return -1;
+			if(entry != REMOVED && townInt(entry - 1, TOWN_HASH) == hash && nameEquals(entry - 1, bytes))
+				return entry - 1;
+		}
+	}
+
+	// Returns true if the stored name of a town is the given UTF-8 bytes
+	private boolean nameEquals(int town, byte[] bytes) {
+		long at = (long) town * TOWN_BYTES;
+		if(townRecords.getInt(at + TOWN_NAME_LENGTH) != bytes.length)
+			return false;
+
+		long name = townRecords.getLong(at + TOWN_NAME);
+		for(int i = 0; i < bytes.length; i++) {
+			if(names.getByte(name + i) != bytes[i])
+				return false;
+		}
+		return true;
+	}
+
+	// Adds a town to the hash table, growing it to keep it at most half full
+	private void insertIndex(int town) {
+		if(2 * (indexUsed + 1) > indexCapacity)
+			resizeIndex(4 * (townCount + 1));
+
+		int mask = indexCapacity - 1;
+		int slot = mix(townInt(town, TOWN_HASH)) & mask;
+		while(index.getInt(slot * 4L) > EMPTY)
+			slot = (slot + 1) & mask;
+		if(index.getInt(slot * 4L) == EMPTY)
+			indexUsed++;
+		index.putInt(slot * 4L, town + 1);
+	}
+
+	// Marks a town's entry in the hash table as removed
+	private void removeIndex(int town) {
+		int mask = indexCapacity - 1;
+		int slot = mix(townInt(town, TOWN_HASH)) & mask;
+		while(index.getInt(slot * 4L) != town + 1)
+			slot = (slot + 1) & mask;
+		index.putInt(slot * 4L, REMOVED);
+	}
+
+	// Rebuilds the hash table with room for at least the given number of slots, dropping removed entries
+	private void resizeIndex(int minimum) {
+		int capacity = 16;
+		while(capacity < minimum)
+			capacity *= 2;
+
+		Memory table = new Memory(null);
+		table.ensure(capacity * 4L);
+		index = table;
+		indexCapacity = capacity;
+		indexUsed = 0;
+		for(int town = 0; town < nextTown; town++) {
+			if(townAlive(town))
+				insertIndex(town);
+		}
+	}
+
+	// Spreads the bits of a hash so names with similar hashes land in different slots
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * This is a class that iterates over the live records of a table by id, skipping the
+	 * ids of removed towns or roads.
+	 */
+	private abstract class RecordIterator<T> implements Iterator<T> {
+		private int next = advance(0);
+
+		// Returns one more than the largest id handed out
+		abstract int limit();
+
+		abstract boolean alive(int id);
+
+		abstract T view(int id);
+
+		// Returns the first live id at or after id, or -1
+		private int advance(int id) {
+			lock.readLock().lock();
+			try {
+				checkOpen();
+				while(id < limit() && !alive(id))
+					id++;
+				return id < limit() ? id : -1;
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next >= 0;
+		}
+
+		@Override
+		public T next() {
+			if(next < 0)
+				throw new NoSuchElementException();
+
+			T item;
+			lock.readLock().lock();
+			try {
+				checkOpen();
+				item = view(next);
+			} finally {
+				lock.readLock().unlock();
+			}
+			next = advance(next + 1);
+			return item;
+		}
+	}
+
+	/**
+	 * This is a class that holds a thread's search workspace and what its last search
+	 * was, so a shortest path tree computed by dijkstraShortestPath can be read again.
+	 */
+	private static class LastSearch {
+		SearchWorkspace workspace;
+
+		// Held weakly, so a thread's last search does not keep a graph's memory alive
+		private WeakReference<OffHeapGraph> graph = new WeakReference<>(null);
+		private long version;
+		private int source;
+		private boolean complete;
+
+		// Returns the workspace, grown to hold the given number of town ids
+		SearchWorkspace workspace(int towns) {
+			if(workspace == null || workspace.size() < towns)
+				workspace = new SearchWorkspace(Math.max(16, towns + towns / 2));
+			graph.clear();
+			return workspace;
+		}
+
+		void remember(OffHeapGraph graph, int source, boolean complete) {
+			this.graph = new WeakReference<>(graph);
+			version = graph.modCount;
+			this.source = source;
+			this.complete = complete;
+		}
+
+		// Returns true if the last search was a full search from the source of the graph as it is
+		boolean covers(OffHeapGraph graph, int source) {
+			return complete && this.graph.get() == graph && version == graph.modCount && this.source == source;
+		}
+	}
+
+	/**
+	 * This is a class that holds a growable byte store made of fixed-size chunks of
+	 * direct memory or of a mapped file, addressed by long offsets so a store can exceed
+	 * the 2 GB limit of a single buffer. Records are 8-byte aligned and chunks are a power
+	 * of two, so no int, long or double ever crosses two chunks; only names may.
+	 */
+	private static class Memory {
+		private static final int CHUNK_BITS = 24;
+		private static final int CHUNK = 1 << CHUNK_BITS;
+		private static final int MASK = CHUNK - 1;
+
+		// The first chunk starts small and doubles up to a full chunk, so small graphs stay small
+		private static final int FIRST_CHUNK = 4096;
+
+		private final FileChannel channel;
+		private ByteBuffer[] chunks = new ByteBuffer[1];
+		private int count;
+
+		Memory(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		// Returns the number of bytes reserved
+		long capacity() {
+			return count == 0 ? 0 : (long) (count - 1) * CHUNK + chunks[count - 1].capacity();
+		}
+
+		// Reserves room for the first bytes of the store
+		void ensure(long bytes) {
+			if(bytes <= capacity())
+				return;
+
+			// Grow the first chunk by doubling, copying it when it is not file-backed
+			if(count <= 1) {
+				int size = count == 0 ? FIRST_CHUNK : chunks[0].capacity();
+				while(size < bytes && size < CHUNK)
+					size *= 2;
+				ByteBuffer first = allocate(0, size);
+				if(count == 1 && channel == null)
+					first.put(0, chunks[0], 0, chunks[0].capacity());
+				chunks[0] = first;
+				count = 1;
+			}
+
+			while(capacity() < bytes) {
+				if(count == chunks.length)
+					chunks = Arrays.copyOf(chunks, count * 2);
+				chunks[count] = allocate((long) count * CHUNK, CHUNK);
+				count++;
+			}
+		}
+
+		private ByteBuffer allocate(long position, int size) {
+			try {
+				ByteBuffer buffer = channel == null ? ByteBuffer.allocateDirect(size)
+						: channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+				return buffer.order(ByteOrder.nativeOrder());
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		int getInt(long at) {
+			return chunks[(int) (at >>> CHUNK_BITS)].getInt((int) (at & MASK));
+		}
+
+		void putInt(long at, int value) {
+			chunks[(int) (at >>> CHUNK_BITS)].putInt((int) (at & MASK), value);
+		}
+
+		long getLong(long at) {
+			return chunks[(int) (at >>> CHUNK_BITS)].getLong((int) (at & MASK));
+		}
+
+		void putLong(long at, long value) {
+			chunks[(int) (at >>> CHUNK_BITS)].putLong((int) (at & MASK), value);
+		}
+
+		double getDouble(long at) {
+			return chunks[(int) (at >>> CHUNK_BITS)].getDouble((int) (at & MASK));
+		}
+
+		void putDouble(long at, double value) {
+			chunks[(int) (at >>> CHUNK_BITS)].putDouble((int) (at & MASK), value);
+		}
+
+		byte getByte(long at) {
+			return chunks[(int) (at >>> CHUNK_BITS)].get((int) (at & MASK));
+		}
+
+		// Copies bytes in, splitting them across chunks where needed
+		void put(long at, byte[] bytes) {
+			int done = 0;
+			while(done < bytes.length) {
+				int offset = (int) ((at + done) & MASK);
+				int length = Math.min(bytes.length - done, CHUNK - offset);
+				chunks[(int) ((at + done) >>> CHUNK_BITS)].put(offset, bytes, done, length);
+				done += length;
+			}
+		}
+
+		String getString(long at, int length) {
+			byte[] bytes = new byte[length];
+			int done = 0;
+			while(done < length) {
+				int offset = (int) ((at + done) & MASK);
+				int part = Math.min(length - done, CHUNK - offset);
+				chunks[(int) ((at + done) >>> CHUNK_BITS)].get(offset, bytes, done, part);
+				done += part;
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		// Drops the buffers and closes the file, if any
+		void close() {
+			chunks = new ByteBuffer[1];
+			count = 0;
+			if(channel == null)
+				return;
+			try {
+				channel.close();
+			} catch(IOException e) {
+				// Already closed
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This is a class that checks partitioned routing on a single host: it generates a road
+ * network, splits it across several worker processes on localhost, and compares random
+ * partitioned queries with Graph.shortestPath on the whole graph.
+ *
+ * Arguments, all optional: towns, regions, queries, seed, and "threads" to run the
+ * workers as threads instead of processes. Exits with status 1 if any query disagrees.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class PartitionHarness {
+
+	private final Graph graph;
+
+	// Constructor for a generated random geometric network
+	public PartitionHarness(int towns, long seed) {
+		graph = new Graph();
+		new RoadNetworkGenerator(RoadNetworkGenerator.Topology.RANDOM_GEOMETRIC, towns, seed).addTo(graph);
+	}
+
+	// Returns the generated graph
+	public Graph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * This is a class that holds the outcome of a run: what was partitioned, and every
+	 * query that disagreed with Graph.shortestPath
+	 */
+	public static class Result {
+		private final String summary;
+		private final List<String> mismatches;
+
+		Result(String summary, List<String> mismatches) {
+			this.summary = summary;
+			this.mismatches = mismatches;
+		}
+
+		// Returns the size of the graph and how it was partitioned
+		public String getSummary() {
+			return summary;
+		}
+
+		// Returns a description of every disagreement, empty if all queries agree
+		public List<String> getMismatches() {
+			return mismatches;
+		}
+	}
+
+	/**
+	 * Partitions the graph, runs random queries against the workers and stops them
+	 * @param regions number of regions, one worker each
+	 * @param processes true to run the workers as processes, false as threads
+	 * @param queries number of random town pairs
+	 * @param seed seed of the pairs
+	 * @return the partitioning and the queries that disagreed
+	 * @throws IOException if a worker cannot be started or reached
+	 */
+	public Result run(int regions, boolean processes, int queries, long seed) throws IOException {
+		try(PartitionedGraph partitions = new PartitionedGraph(graph, regions, processes)) {
+			String summary = graph.vertexSet().size() + " towns, " + graph.edgeSet().size() + " roads: " + partitions;
+			return new Result(summary, new RoutingCrossCheck(graph).checkPartitioned(partitions, queries, seed));
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		int towns = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+		int regions = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+		boolean processes = args.length <= 4 || !args[4].equals("threads");
+
+		long start = System.nanoTime();
+		Result result = new PartitionHarness(towns, seed).run(regions, processes, queries, seed);
+		List<String> mismatches = result.getMismatches();
+		System.out.println(result.getSummary());
+		for(String mismatch: mismatches)
+			System.out.println(mismatch);
+
+		System.out.println(queries + " queries, " + mismatches.size() + " mismatches, "
+				+ (System.nanoTime() - start) / 1_000_000 + " ms");
+		if(!mismatches.isEmpty())
+			System.exit(1);
+	}
+}
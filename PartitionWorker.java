@@ -0,0 +1,211 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * This is a class that serves one region of a PartitionedGraph over a localhost socket.
+ * A worker accepts a single connection from its coordinator, is sent the region's towns
+ * and roads, and then answers distance and path requests inside the region until the
+ * connection closes. Run as a process, it prints its port on the first line of standard
+ * output and exits when the coordinator disconnects, or goes away.
+ *
+ * Towns are named by their index in the LOAD request. Requests and replies use
+ * DataOutputStream encoding:
+ * LOAD: town count, town names, road count, then from, to, weight and name of each road;
+ * replies OK.
+ * DISTANCES: source count, sources, target count, targets; replies the distance from
+ * every source to every target, source by source, UNREACHABLE where there is no path.
+ * PATH: source, target; replies the hop count, -1 if there is no path, then each hop in
+ * the shortestPath format.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class PartitionWorker implements Runnable {
+
+	// Request codes
+	static final int LOAD = 1;
+	static final int DISTANCES = 2;
+	static final int PATH = 3;
+
+	// Reply to a LOAD
+	static final int OK = 0;
+
+	private final ServerSocket server;
+
+	// The coordinator's connection, once accepted
+	private volatile Socket connection;
+
+	// Runs the searches of DISTANCES requests. A coordinator in the same JVM blocks common
+	// pool threads on its sockets while it waits for the replies, so they are kept off it.
+	private final ForkJoinPool searches;
+
+	// The region, and its towns by LOAD index
+	private CompactGraph region;
+	private Town[] towns;
+
+	/**
+	 * Creates a worker listening on a free port of the loopback address
+	 * @throws IOException if no port can be bound
+	 */
+	public PartitionWorker() throws IOException {
+		server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		region = new Graph().snapshot();
+		towns = new Town[0];
+		searches = new ForkJoinPool();
+	}
+
+	// Returns the port the worker listens on
+	public int getPort() {
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Serves one coordinator until it disconnects
+	 */
+	@Override
+	public void run() {
+		try(ServerSocket listener = server;
+				Socket socket = listener.accept();
+				DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+			connection = socket;
+			socket.setTcpNoDelay(true);
+			serve(in, out);
+		} catch(EOFException e) {
+			// The coordinator closed the connection mid-request
+		} catch(IOException e) {
+			System.err.println("partition worker on port " + getPort() + ": " + e);
+		} finally {
+			searches.shutdown();
+		}
+	}
+
+	// Drops the coordinator's connection as a crashed worker would, for tests of lost workers
+	void kill() throws IOException {
+		Socket socket = connection;
+		if(socket != null)
+			socket.close();
+		else
+			server.close();
+	}
+
+	// Answers requests until the end of the stream
+	private void serve(DataInputStream in, DataOutputStream out) throws IOException {
+		int request;
+		while((request = in.read()) >= 0) {
+			switch(request) {
+			case LOAD:
+				load(in);
+				out.writeByte(OK);
+				break;
+			case DISTANCES:
+				distances(in, out);
+				break;
+			case PATH:
+				path(in, out);
+				break;
+			default:
+				throw new IOException("unknown request " + request);
+			}
+			out.flush();
+		}
+	}
+
+	// Replaces the region with the towns and roads of a LOAD request
+	private void load(DataInputStream in) throws IOException {
+		Town[] loaded = new Town[in.readInt()];
+		for(int i = 0; i < loaded.length; i++)
+			loaded[i] = new Town(in.readUTF());
+
+		int roads = in.readInt();
+		int[] from = new int[roads];
+		int[] to = new int[roads];
+		int[] weight = new int[roads];
+		String[] name = new String[roads];
+		for(int r = 0; r < roads; r++) {
+			from[r] = in.readInt();
+			to[r] = in.readInt();
+			weight[r] = in.readInt();
+			name[r] = in.readUTF();
+		}
+
+		Graph graph = new Graph();
+		graph.batch(() -> {
+			for(Town town: loaded)
+				graph.addVertex(town);
+			for(int r = 0; r < roads; r++)
+				graph.addEdge(loaded[from[r]], loaded[to[r]], weight[r], name[r]);
+		});
+		region = graph.snapshot();
+		towns = loaded;
+	}
+
+	// Answers a DISTANCES request, running one search per source in parallel
+	private void distances(DataInputStream in, DataOutputStream out) throws IOException {
+		int[] sources = readInts(in);
+		int[] targets = readInts(in);
+
+		int[][] rows = new int[sources.length][];
+		try {
+			searches.submit(() -> IntStream.range(0, sources.length).parallel().forEach(i -> {
+				int[] dist = region.distancesFrom(towns[sources[i]]);
+				rows[i] = new int[targets.length];
+				for(int j = 0; j < targets.length; j++)
+					rows[i][j] = dist[region.indexOf(towns[targets[j]])];
+			})).get();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while searching");
+		} catch(ExecutionException e) {
+			throw new IOException("search failed", e.getCause());
+		}
+
+		for(int[] row: rows) {
+			for(int d: row)
+				out.writeInt(d);
+		}
+	}
+
+	// Answers a PATH request
+	private void path(DataInputStream in, DataOutputStream out) throws IOException {
+		Route route = region.route(towns[in.readInt()], towns[in.readInt()]);
+		if(route == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		out.writeInt(route.size());
+		for(int i = 0; i < route.size(); i++)
+			out.writeUTF(route.formatHop(i));
+	}
+
+	// Reads a count and that many ints
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int[] values = new int[in.readInt()];
+		for(int i = 0; i < values.length; i++)
+			values[i] = in.readInt();
+		return values;
+	}
+
+	/**
+	 * Runs a worker process: prints the port, then serves one coordinator
+	 * @param args not used
+	 * @throws IOException if no port can be bound
+	 */
+	public static void main(String[] args) throws IOException {
+		PartitionWorker worker = new PartitionWorker();
+		System.out.println(worker.getPort());
+		System.out.flush();
+		worker.run();
+	}
+}
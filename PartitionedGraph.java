@@ -0,0 +1,589 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * This is a class that routes over a graph split into regions, each held by its own
+ * PartitionWorker behind a localhost socket. The coordinator keeps only the overlay: the
+ * boundary towns that have a road into another region, the cut roads between them, and
+ * for each region the in-region distance between every two of its boundary towns, asked
+ * of the region's worker once when the graph is partitioned.
+ *
+ * A query asks the source's worker for the distances from the source to its region's
+ * boundary and the target's worker for the distances from its boundary to the target,
+ * searches the overlay between them with Dijkstra's algorithm, and asks the workers to
+ * expand each in-region stretch of the best path into roads. The result is the same
+ * shortest path length Graph.shortestPath finds.
+ *
+ * Workers run as separate JVM processes, or as threads of this one for tests; both talk
+ * over sockets. A partitioned graph is a snapshot: later changes to the graph are not
+ * seen. Close it to stop its workers; queries in flight finish first, and callers that
+ * hand the graph between threads can hold it open with acquire and release.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class PartitionedGraph implements AutoCloseable {
+
+	private static final int UNREACHABLE = CompactGraph.UNREACHABLE;
+
+	private final long version;
+
+	// Town ids are the ids of the snapshot that was partitioned
+	private final String[] names;
+	private final Map<String, Integer> ids;
+	private final int[] region;
+	private final int[] localId;
+
+	private final Worker[] workers;
+
+	// Boundary towns of each region, by town id
+	private final int[][] boundary;
+
+	// Overlay over the boundary towns, in CSR form; cut[e] is the road name of a cut road,
+	// null for the in-region stretches between two boundary towns
+	private final int[] overlayNode;
+	private final int[] overlayTown;
+	private final int[] offsets;
+	private final int[] targets;
+	private final int[] weights;
+	private final String[] cut;
+	private final int cutRoads;
+
+	// Holders of the graph, and whether it was closed; the workers stop once both allow it
+	private int holders;
+	private boolean closed;
+
+	/**
+	 * Partitions a graph and starts a worker for each region
+	 * @param graph the graph to partition
+	 * @param regions number of regions
+	 * @param processes true to run each worker in a JVM process of its own, false to run
+	 * them as threads of this JVM
+	 * @throws IOException if a worker cannot be started or reached
+	 * @throws IllegalArgumentException if regions is not positive
+	 */
+	public PartitionedGraph(Graph graph, int regions, boolean processes) throws IOException {
+		CompactGraph snapshot = graph.snapshot();
+		version = snapshot.getVersion();
+		region = GraphPartitioner.partition(snapshot, regions);
+
+		int n = snapshot.size();
+		names = new String[n];
+		ids = new HashMap<>();
+		localId = new int[n];
+		int[] regionSize = new int[regions];
+		for(int t = 0; t < n; t++) {
+			names[t] = snapshot.getTown(t).getName();
+			ids.put(names[t], t);
+			localId[t] = regionSize[region[t]]++;
+		}
+
+		// Boundary towns and cut roads
+		overlayNode = new int[n];
+		Arrays.fill(overlayNode, -1);
+		int[] boundaryCount = new int[regions];
+		int nodes = 0;
+		int cuts = 0;
+		for(int u = 0; u < n; u++) {
+			for(int slot = snapshot.firstSlot(u); slot < snapshot.endSlot(u); slot++) {
+				if(region[snapshot.target(slot)] != region[u]) {
+					if(overlayNode[u] < 0) {
+						overlayNode[u] = nodes++;
+						boundaryCount[region[u]]++;
+					}
+					if(u < snapshot.target(slot))
+						cuts++;
+				}
+			}
+		}
+		cutRoads = cuts;
+
+		overlayTown = new int[nodes];
+		boundary = new int[regions][];
+		for(int r = 0; r < regions; r++)
+			boundary[r] = new int[boundaryCount[r]];
+		Arrays.fill(boundaryCount, 0);
+		for(int t = 0; t < n; t++) {
+			if(overlayNode[t] >= 0) {
+				overlayTown[overlayNode[t]] = t;
+				boundary[region[t]][boundaryCount[region[t]]++] = t;
+			}
+		}
+
+		workers = new Worker[regions];
+		try {
+			for(int r = 0; r < regions; r++)
+				workers[r] = new Worker(processes, r);
+			IntStream.range(0, regions).parallel().forEach(r -> load(snapshot, r));
+
+			// Distances between the boundary towns of each region, in parallel across workers
+			int[][][] cliques = new int[regions][][];
+			IntStream.range(0, regions).parallel().forEach(r -> {
+				int[] local = locals(boundary[r]);
+				cliques[r] = workers[r].distances(local, local);
+			});
+
+			// Lay out the overlay: every cut road, then every finite in-region stretch
+			int[] degree = new int[nodes + 1];
+			for(int t: overlayTown) {
+				for(int slot = snapshot.firstSlot(t); slot < snapshot.endSlot(t); slot++) {
+					if(region[snapshot.target(slot)] != region[t])
+						degree[overlayNode[t] + 1]++;
+				}
+			}
+			for(int r = 0; r < regions; r++) {
+				for(int i = 0; i < boundary[r].length; i++) {
+					for(int j = 0; j < boundary[r].length; j++) {
+						if(i != j && cliques[r][i][j] != UNREACHABLE)
+							degree[overlayNode[boundary[r][i]] + 1]++;
+					}
+				}
+			}
+			for(int v = 0; v < nodes; v++)
+				degree[v + 1] += degree[v];
+
+			offsets = degree.clone();
+			targets = new int[offsets[nodes]];
+			weights = new int[offsets[nodes]];
+			cut = new String[offsets[nodes]];
+			int[] next = Arrays.copyOf(offsets, nodes);
+			for(int t: overlayTown) {
+				for(int slot = snapshot.firstSlot(t); slot < snapshot.endSlot(t); slot++) {
+					int v = snapshot.target(slot);
+					if(region[v] != region[t]) {
+						int e = next[overlayNode[t]]++;
+						targets[e] = overlayNode[v];
+						weights[e] = snapshot.weight(slot);
+						cut[e] = snapshot.getRoadName(snapshot.roadId(slot));
+					}
+				}
+			}
+			for(int r = 0; r < regions; r++) {
+				for(int i = 0; i < boundary[r].length; i++) {
+					for(int j = 0; j < boundary[r].length; j++) {
+						if(i != j && cliques[r][i][j] != UNREACHABLE) {
+							int e = next[overlayNode[boundary[r][i]]]++;
+							targets[e] = overlayNode[boundary[r][j]];
+							weights[e] = cliques[r][i][j];
+						}
+					}
+				}
+			}
+		} catch(IOException | UncheckedIOException e) {
+			close();
+			throw e instanceof UncheckedIOException ? ((UncheckedIOException) e).getCause() : (IOException) e;
+		}
+	}
+
+	// Sends a region's towns and the roads between them to its worker
+	private void load(CompactGraph snapshot, int r) {
+		ArrayList<String> towns = new ArrayList<>();
+		ArrayList<int[]> roads = new ArrayList<>();
+		ArrayList<String> roadNames = new ArrayList<>();
+		for(int u = 0; u < region.length; u++) {
+			if(region[u] != r)
+				continue;
+			towns.add(names[u]);
+
+			// Every road is stored once from each end; take it from the lower one
+			for(int slot = snapshot.firstSlot(u); slot < snapshot.endSlot(u); slot++) {
+				int v = snapshot.target(slot);
+				if(u < v && region[v] == r) {
+					roads.add(new int[] {localId[u], localId[v], snapshot.weight(slot)});
+					roadNames.add(snapshot.getRoadName(snapshot.roadId(slot)));
+				}
+			}
+		}
+
+		int[] from = new int[roads.size()];
+		int[] to = new int[roads.size()];
+		int[] weight = new int[roads.size()];
+		for(int i = 0; i < from.length; i++) {
+			from[i] = roads.get(i)[0];
+			to[i] = roads.get(i)[1];
+			weight[i] = roads.get(i)[2];
+		}
+		workers[r].load(towns.toArray(new String[0]), from, to, weight, roadNames.toArray(new String[0]));
+	}
+
+	// Returns the version of the graph that was partitioned
+	public long getVersion() {
+		return version;
+	}
+
+	// Returns the number of regions
+	public int getRegionCount() {
+		return workers.length;
+	}
+
+	// Returns the number of towns in the overlay, those with a road into another region
+	public int getBoundarySize() {
+		return overlayTown.length;
+	}
+
+	// Returns the number of roads between towns of different regions
+	public int getCutRoads() {
+		return cutRoads;
+	}
+
+	/**
+	 * Returns the region a town was put in
+	 * @param town the town
+	 * @return the region, or -1 for a town that is not in the graph
+	 */
+	public int regionOf(Town town) {
+		Integer id = town == null ? null : ids.get(town.getName());
+		return id == null ? -1 : region[id];
+	}
+
+	/**
+	 * Find the shortest path from the sourceVertex to the destinationVertex across the
+	 * regions
+	 * @param sourceVertex starting vertex
+	 * @param destinationVertex ending vertex
+	 * @return the path in the same format as Graph.shortestPath, or null if either town is
+	 * unknown or there is no path between the towns
+	 * @throws UncheckedIOException if a worker cannot be reached
+	 */
+	public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+		if(!acquire())
+			throw new IllegalStateException("partitioned graph is closed");
+		try {
+			return route(sourceVertex, destinationVertex);
+		} finally {
+			release();
+		}
+	}
+
+	// Finds a path across the regions while the workers are held open
+	private ArrayList<String> route(Town sourceVertex, Town destinationVertex) {
+		Integer source = sourceVertex == null ? null : ids.get(sourceVertex.getName());
+		Integer target = destinationVertex == null ? null : ids.get(destinationVertex.getName());
+		if(source == null || target == null)
+			return null;
+		if(source.equals(target))
+			return new ArrayList<>();
+
+		int s = source;
+		int t = target;
+		int rs = region[s];
+		int rt = region[t];
+
+		// In-region distances from the source to its boundary and, in the same region, to the target
+		int[] exits = boundary[rs];
+		int[] toExits = locals(exits);
+		if(rs == rt) {
+			toExits = Arrays.copyOf(toExits, exits.length + 1);
+			toExits[exits.length] = localId[t];
+		}
+		int[] fromSource = workers[rs].distances(new int[] {localId[s]}, toExits)[0];
+		int[] toTarget = workers[rt].distances(new int[] {localId[t]}, locals(boundary[rt]))[0];
+
+		int best = rs == rt ? fromSource[exits.length] : UNREACHABLE;
+		int bestNode = -1;
+
+		// Dijkstra's algorithm over the overlay, started from every exit of the source's region
+		int[] dist = new int[overlayTown.length];
+		int[] prevEdge = new int[overlayTown.length];
+		int[] remaining = new int[overlayTown.length];
+		Arrays.fill(dist, UNREACHABLE);
+		Arrays.fill(remaining, UNREACHABLE);
+		for(int i = 0; i < boundary[rt].length; i++)
+			remaining[overlayNode[boundary[rt][i]]] = toTarget[i];
+
+		IntMinHeap heap = new IntMinHeap(overlayTown.length);
+		for(int i = 0; i < exits.length; i++) {
+			if(fromSource[i] != UNREACHABLE) {
+				int node = overlayNode[exits[i]];
+				dist[node] = fromSource[i];
+				prevEdge[node] = -1;
+				heap.offer(node, fromSource[i]);
+			}
+		}
+
+		while(!heap.isEmpty() && heap.peekKey() < best) {
+			int u = heap.poll();
+			if(remaining[u] != UNREACHABLE && dist[u] + remaining[u] < best) {
+				best = dist[u] + remaining[u];
+				bestNode = u;
+			}
+
+			for(int e = offsets[u]; e < offsets[u + 1]; e++) {
+				int v = targets[e];
+				int alt = dist[u] + weights[e];
+				if(alt < dist[v]) {
+					dist[v] = alt;
+					prevEdge[v] = e;
+					heap.offer(v, alt);
+				}
+			}
+		}
+
+		if(best == UNREACHABLE)
+			return null;
+		if(bestNode < 0)
+			return workers[rs].path(localId[s], localId[t]);
+		return expand(s, t, bestNode, prevEdge);
+	}
+
+	// Expands the overlay path ending at a boundary town of the target's region into roads
+	private ArrayList<String> expand(int source, int target, int last, int[] prevEdge) {
+		// Overlay edges from the first exit to the last node, in order
+		ArrayList<Integer> edges = new ArrayList<>();
+		int first = last;
+		while(prevEdge[first] >= 0) {
+			edges.add(prevEdge[first]);
+			first = tail(prevEdge[first]);
+		}
+
+		ArrayList<String> path = new ArrayList<>();
+		stretch(path, source, overlayTown[first]);
+		for(int i = edges.size() - 1; i >= 0; i--) {
+			int e = edges.get(i);
+			int from = overlayTown[tail(e)];
+			int to = overlayTown[targets[e]];
+			if(cut[e] != null)
+				path.add(names[from] + " via " + cut[e] + " to " + names[to] + " " + weights[e] + " mi");
+			else
+				stretch(path, from, to);
+		}
+		stretch(path, overlayTown[last], target);
+		return path;
+	}
+
+	// Appends the roads of the shortest path between two towns of one region
+	private void stretch(ArrayList<String> path, int from, int to) {
+		if(from != to)
+			path.addAll(workers[region[from]].path(localId[from], localId[to]));
+	}
+
+	// Returns the overlay node an edge leaves from
+	private int tail(int edge) {
+		int low = 0;
+		int high = offsets.length - 2;
+		while(low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if(offsets[mid] <= edge)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	// Returns the ids of towns within their region
+	private int[] locals(int[] towns) {
+		int[] local = new int[towns.length];
+		for(int i = 0; i < towns.length; i++)
+			local[i] = localId[towns[i]];
+		return local;
+	}
+
+	/**
+	 * Keeps the workers running until a matching release, even if the graph is closed
+	 * meanwhile, so that a query can be started on it from another thread
+	 * @return false if the workers have already been stopped
+	 */
+	public synchronized boolean acquire() {
+		if(closed && holders == 0)
+			return false;
+		holders++;
+		return true;
+	}
+
+	// Ends a hold taken by acquire, stopping the workers if the graph was closed meanwhile
+	public void release() {
+		boolean stop;
+		synchronized(this) {
+			stop = --holders == 0 && closed;
+		}
+		if(stop)
+			stopWorkers();
+	}
+
+	// Returns true once close has been called
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Closes the graph and stops every worker once the queries in flight and the holds
+	 * taken by acquire have ended; after that it can no longer be queried
+	 */
+	@Override
+	public void close() {
+		boolean stop;
+		synchronized(this) {
+			stop = !closed && holders == 0;
+			closed = true;
+		}
+		if(stop)
+			stopWorkers();
+	}
+
+	/**
+	 * Ends the worker of a region as if it had crashed, leaving the graph open, so tests can
+	 * check how queries that need it fail
+	 * @param r the region
+	 * @throws IOException if the worker's connection cannot be closed
+	 */
+	void killWorker(int r) throws IOException {
+		workers[r].kill();
+	}
+
+	private void stopWorkers() {
+		for(Worker worker: workers) {
+			if(worker != null)
+				worker.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return workers.length + " regions, " + overlayTown.length + " boundary towns, " + cutRoads + " cut roads";
+	}
+
+	/**
+	 * This is a class that holds the connection to one worker. Requests to a worker are
+	 * answered one at a time, so they are synchronized; different workers are asked in
+	 * parallel.
+	 */
+	private static class Worker {
+		private final Process process;
+		private final PartitionWorker local;
+		private final Socket socket;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+
+		// Starts a worker and connects to it
+		Worker(boolean processes, int region) throws IOException {
+			int port;
+			if(processes) {
+				String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+				process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), PartitionWorker.class.getName())
+						.redirectError(ProcessBuilder.Redirect.INHERIT)
+						.start();
+				BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+				String line = reader.readLine();
+				if(line == null) {
+					process.destroy();
+					throw new IOException("partition worker " + region + " exited before it started listening");
+				}
+				port = Integer.parseInt(line.trim());
+				local = null;
+			} else {
+				process = null;
+				local = new PartitionWorker();
+				Thread thread = new Thread(local, "partition-worker-" + region);
+				thread.setDaemon(true);
+				thread.start();
+				port = local.getPort();
+			}
+
+			socket = new Socket(InetAddress.getLoopbackAddress(), port);
+			socket.setTcpNoDelay(true);
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		// Sends the towns of a region, in local id order, and the roads inside it
+		synchronized void load(String[] towns, int[] from, int[] to, int[] weight, String[] roadNames) {
+			try {
+				out.writeByte(PartitionWorker.LOAD);
+				out.writeInt(towns.length);
+				for(String town: towns)
+					out.writeUTF(town);
+				out.writeInt(from.length);
+				for(int r = 0; r < from.length; r++) {
+					out.writeInt(from[r]);
+					out.writeInt(to[r]);
+					out.writeInt(weight[r]);
+					out.writeUTF(roadNames[r]);
+				}
+				out.flush();
+
+				if(in.readByte() != PartitionWorker.OK)
+					throw new IOException("partition worker did not load its region");
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		// Asks for the in-region distance from every source to every target
+		synchronized int[][] distances(int[] sources, int[] targets) {
+			try {
+				out.writeByte(PartitionWorker.DISTANCES);
+				writeInts(sources);
+				writeInts(targets);
+				out.flush();
+
+				int[][] rows = new int[sources.length][targets.length];
+				for(int[] row: rows) {
+					for(int j = 0; j < row.length; j++)
+						row[j] = in.readInt();
+				}
+				return rows;
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		// Asks for the roads of the in-region shortest path between two towns
+		synchronized ArrayList<String> path(int source, int target) {
+			try {
+				out.writeByte(PartitionWorker.PATH);
+				out.writeInt(source);
+				out.writeInt(target);
+				out.flush();
+
+				int hops = in.readInt();
+				if(hops < 0)
+					return null;
+				ArrayList<String> path = new ArrayList<>(hops);
+				for(int i = 0; i < hops; i++)
+					path.add(in.readUTF());
+				return path;
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void writeInts(int[] values) throws IOException {
+			out.writeInt(values.length);
+			for(int v: values)
+				out.writeInt(v);
+		}
+
+		// Ends the worker without closing the connection to it
+		void kill() throws IOException {
+			if(process != null)
+				process.destroyForcibly();
+			else
+				local.kill();
+		}
+
+		// Closes the connection, which ends the worker
+		void close() {
+			try {
+				socket.close();
+			} catch(IOException e) {
+				// Already closed
+			}
+			if(process != null)
+				process.destroy();
+		}
+	}
+}
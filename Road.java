@@ -12,6 +12,9 @@ public class Road implements Comparable<Road> {
 	private int weight;
 	private String name;
 
+	// The graph this road belongs to, which applies weight changes
+	private volatile Graph graph;
+
 
 	public Road(Town source, Town destination, int degrees, String name) {
 		this.T1 = source;
@@ -31,32 +34,29 @@ public class Road implements Comparable<Road> {
 
 	// Returns true if the edge contains the given town
 	public boolean contains(Town town) {
-		if(town.getName().equals(T1.getName()) || town.getName().equals(T2.getName()))
-			return true;
-		else
-			return false;
+		return T1.equals(town) || T2.equals(town);
 	}
 
 
 	// Returns true if each of the ends of the road r is same as the ends of this road
 	public boolean equals(Object r) {
 
-		Road r1 = (Road) r;
-
-		if ((r1.getDestination().getName().equals(this.getDestination().getName()) 
-				&& r1.getSource().getName().equals(this.getSource().getName()))
+		if(!(r instanceof Road))
+			return false;
 
-				|| 
+		Road r1 = (Road) r;
 
-				(r1.getDestination().getName().equals(this.getSource().getName()) 
-						&& r1.getSource().getName().equals(this.getDestination().getName()))
-				)
-			return true;
-		else
-			return false;
+		// Towns of a graph are usually the same objects, which Town.equals checks first
+		return (T1.equals(r1.T1) && T2.equals(r1.T2)) || (T1.equals(r1.T2) && T2.equals(r1.T1));
 	}
 
 
+	// Returns a hash of the unordered pair of town names, consistent with equals
+	public int hashCode() {
+		int h1 = T1.getName().hashCode();
+		int h2 = T2.getName().hashCode();
+		return 31 * Math.min(h1, h2) + Math.max(h1, h2);
+	}
 
 	// Returns the road name
 	public String getName() {
@@ -78,10 +78,25 @@ public class Road implements Comparable<Road> {
 		return weight;
 	}
 	
+	// Sets the distance of the road, through its graph if it belongs to one
 	public void setWeight(int w) {
+		Graph owner = graph;
+		if(owner != null)
+			owner.updateWeight(this, w);
+		else
+			weight = w;
+	}
+
+	// Stores a new distance, called by the graph while it holds its write lock
+	void assignWeight(int w) {
 		weight = w;
 	}
 
+	// Sets the graph this road belongs to
+	void setGraph(Graph graph) {
+		this.graph = graph;
+	}
+
 	// Returns the toString of the Road
 	public String toString() {
 		return (this.name + " road links town " + T1.getName() + " to town " + T2.getName()+". Weight: "+ weight);
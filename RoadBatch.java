@@ -0,0 +1,79 @@
+import java.util.Arrays;
+
+/**
+ * This is a class that holds a batch of roads to add to a graph: for every road its name,
+ * length and the names of the two towns it links.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class RoadBatch {
+
+	private String[] roadNames;
+	private String[] sources;
+	private String[] destinations;
+	private int[] weights;
+	private int size;
+
+	// Constructor with room for the given number of roads
+	public RoadBatch(int capacity) {
+		roadNames = new String[Math.max(1, capacity)];
+		sources = new String[roadNames.length];
+		destinations = new String[roadNames.length];
+		weights = new int[roadNames.length];
+	}
+
+	/**
+	 * Adds a road to the batch
+	 * @param roadName name of the road
+	 * @param source name of the first town
+	 * @param destination name of the second town
+	 * @param weight length of the road in miles
+	 */
+	public void add(String roadName, String source, String destination, int weight) {
+		if(size == roadNames.length) {
+			int capacity = size * 2;
+			roadNames = Arrays.copyOf(roadNames, capacity);
+			sources = Arrays.copyOf(sources, capacity);
+			destinations = Arrays.copyOf(destinations, capacity);
+			weights = Arrays.copyOf(weights, capacity);
+		}
+
+		roadNames[size] = roadName;
+		sources[size] = source;
+		destinations[size] = destination;
+		weights[size++] = weight;
+	}
+
+	// Returns the number of roads in the batch
+	public int size() {
+		return size;
+	}
+
+	// Returns the name of road i
+	public String getRoadName(int i) {
+		return roadNames[i];
+	}
+
+	// Returns the name of the first town of road i
+	public String getSource(int i) {
+		return sources[i];
+	}
+
+	// Returns the name of the second town of road i
+	public String getDestination(int i) {
+		return destinations[i];
+	}
+
+	// Returns the length of road i
+	public int getWeight(int i) {
+		return weights[i];
+	}
+
+	// Empties the batch, keeping its arrays
+	public void clear() {
+		Arrays.fill(roadNames, 0, size, null);
+		Arrays.fill(sources, 0, size, null);
+		Arrays.fill(destinations, 0, size, null);
+		size = 0;
+	}
+}
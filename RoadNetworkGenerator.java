@@ -0,0 +1,351 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * This is a class that generates synthetic road networks for scale and correctness tests.
+ * Networks are a pure function of their settings and seed, and are streamed out a batch of
+ * roads at a time, so tens of millions of roads can be generated without holding them.
+ * Towns are named "T0", "T1", ... and town i's coordinates (in miles) are recomputed from
+ * the seed whenever they are needed rather than stored.
+ *
+ * Three shapes are generated:
+ * GRID, a square grid with roads between horizontal and vertical neighbors;
+ * RANDOM_GEOMETRIC, towns scattered one per grid cell, each linked to its right and lower
+ * neighbors and to every other town within the radius that gives the requested average
+ * degree, which is connected and nearly planar like a road map;
+ * SCALE_FREE, a Chung-Lu style network with power-law degrees: each town first links to
+ * an earlier town chosen in proportion to its expected degree, then extra roads join
+ * pairs chosen the same way. Scale-free towns have no coordinates.
+ * Roads that would duplicate a connection are dropped when added to a graph.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class RoadNetworkGenerator {
+
+	/**
+	 * Shapes of generated networks
+	 */
+	public enum Topology {
+		GRID,
+		RANDOM_GEOMETRIC,
+		SCALE_FREE
+	}
+
+	/**
+	 * Distributions of generated road lengths
+	 */
+	public enum WeightDistribution {
+
+		// Uniform between the minimum and maximum weight
+		UNIFORM,
+
+		// Exponential with a mean halfway between them, clamped to them
+		EXPONENTIAL,
+
+		// The straight-line distance between the towns, rounded up; needs coordinates
+		DISTANCE
+	}
+
+	// Side of a grid cell, in miles
+	public static final double CELL_MILES = 10;
+
+	// Roads handed to the consumer at a time
+	private static final int BATCH_SIZE = 1 << 16;
+
+	// Power-law exponent of scale-free degrees
+	private static final double DEGREE_EXPONENT = 2.5;
+
+	private final Topology topology;
+	private final int towns;
+	private final long seed;
+	private final int side;
+
+	private double averageDegree;
+	private WeightDistribution weightDistribution;
+	private int minWeight;
+	private int maxWeight;
+
+	/**
+	 * Creates a generator with an average degree of 6 and uniform weights of 1 to 100 miles
+	 * @param topology shape of the network
+	 * @param towns number of towns
+	 * @param seed seed of every random choice
+	 */
+	public RoadNetworkGenerator(Topology topology, int towns, long seed) {
+		if(towns < 1)
+			throw new IllegalArgumentException("towns must be positive: " + towns);
+
+		this.topology = topology;
+		this.towns = towns;
+		this.seed = seed;
+		side = (int) Math.ceil(Math.sqrt(towns));
+		averageDegree = 6;
+		weightDistribution = WeightDistribution.UNIFORM;
+		minWeight = 1;
+		maxWeight = 100;
+	}
+
+	/**
+	 * Sets the average number of roads per town. Grids always have about 4, and random
+	 * geometric networks at least that many.
+	 * @param averageDegree average degree
+	 */
+	public void setAverageDegree(double averageDegree) {
+		if(averageDegree < 2)
+			throw new IllegalArgumentException("average degree must be at least 2: " + averageDegree);
+		this.averageDegree = averageDegree;
+	}
+
+	/**
+	 * Sets how road lengths are chosen
+	 * @param distribution distribution of the lengths
+	 * @param minWeight shortest road, in miles
+	 * @param maxWeight longest road, in miles; ignored for DISTANCE
+	 */
+	public void setWeights(WeightDistribution distribution, int minWeight, int maxWeight) {
+		if(minWeight < 0 || maxWeight < minWeight)
+			throw new IllegalArgumentException("bad weight range: " + minWeight + " to " + maxWeight);
+		if(distribution == WeightDistribution.DISTANCE && !hasLocations())
+			throw new IllegalArgumentException("scale-free towns have no coordinates");
+
+		weightDistribution = distribution;
+		this.minWeight = minWeight;
+		this.maxWeight = maxWeight;
+	}
+
+	// Returns the number of towns
+	public int getTownCount() {
+		return towns;
+	}
+
+	// Returns true if the towns have coordinates
+	public boolean hasLocations() {
+		return topology != Topology.SCALE_FREE;
+	}
+
+	// Returns the name of town i
+	public static String townName(int i) {
+		return "T" + i;
+	}
+
+	// Returns the horizontal coordinate of town i, in miles
+	public double getX(int i) {
+		double jitter = topology == Topology.RANDOM_GEOMETRIC ? unit(seed, 2L * i) : 0;
+		return (i % side + jitter) * CELL_MILES;
+	}
+
+	// Returns the vertical coordinate of town i, in miles
+	public double getY(int i) {
+		double jitter = topology == Topology.RANDOM_GEOMETRIC ? unit(seed, 2L * i + 1) : 0;
+		return (i / side + jitter) * CELL_MILES;
+	}
+
+	/**
+	 * Generates the roads of the network
+	 * @param consumer receives the roads, a batch at a time; the batch is reused once the
+	 * consumer returns
+	 * @return the number of roads generated
+	 */
+	public long generate(Consumer<RoadBatch> consumer) {
+		Emitter emitter = new Emitter(consumer);
+
+		switch(topology) {
+		case GRID:
+			grid(emitter);
+			break;
+		case RANDOM_GEOMETRIC:
+			randomGeometric(emitter);
+			break;
+		default:
+			scaleFree(emitter);
+		}
+
+		emitter.flush();
+		return emitter.count;
+	}
+
+	/**
+	 * Adds the towns, with their coordinates, and roads of the network to a graph
+	 * @param graph the graph to fill
+	 * @return the number of roads generated
+	 */
+	public long addTo(Graph graph) {
+		Town[] vertices = new Town[towns];
+		for(int i = 0; i < towns; i++) {
+			vertices[i] = hasLocations() ? new Town(townName(i), getX(i), getY(i)) : new Town(townName(i));
+			graph.addVertex(vertices[i]);
+		}
+
+		return generate(batch -> graph.batch(() -> {
+			for(int i = 0; i < batch.size(); i++) {
+				Town source = vertices[townNumber(batch.getSource(i))];
+				Town destination = vertices[townNumber(batch.getDestination(i))];
+				graph.addEdge(source, destination, batch.getWeight(i), batch.getRoadName(i));
+			}
+		}));
+	}
+
+	/**
+	 * Adds the towns, with their coordinates, and roads of the network to a manager
+	 * @param manager the manager to fill
+	 * @return the number of roads generated
+	 */
+	public long addTo(TownGraphManager manager) {
+		for(int i = 0; i < towns; i++) {
+			if(hasLocations())
+				manager.addTown(townName(i), getX(i), getY(i));
+			else
+				manager.addTown(townName(i));
+		}
+		return generate(manager::addRoads);
+	}
+
+	/**
+	 * Writes the roads of the network to a file, one "roadName,miles;town1;town2" line per
+	 * road, which TownGraphManager.importRoads reads back. Coordinates are not written.
+	 * @param file the file to write
+	 * @return the number of roads written
+	 * @throws IOException if the file cannot be written
+	 */
+	public long write(Path file) throws IOException {
+		try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			StringBuilder line = new StringBuilder();
+
+			return generate(batch -> {
+				try {
+					for(int i = 0; i < batch.size(); i++) {
+						line.setLength(0);
+						line.append(batch.getRoadName(i)).append(',').append(batch.getWeight(i)).append(';')
+								.append(batch.getSource(i)).append(';').append(batch.getDestination(i)).append('\n');
+						writer.append(line);
+					}
+				} catch(IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch(UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	// Roads between horizontal and vertical neighbors
+	private void grid(Emitter emitter) {
+		SplittableRandom random = new SplittableRandom(seed);
+
+		for(int i = 0; i < towns; i++) {
+			if(i % side + 1 < side && i + 1 < towns)
+				emitter.road(i, i + 1, weight(random, i, i + 1));
+			if(i + side < towns)
+				emitter.road(i, i + side, weight(random, i, i + side));
+		}
+	}
+
+	// Roads to the right and lower neighbors and to every later town within the radius
+	private void randomGeometric(Emitter emitter) {
+		SplittableRandom random = new SplittableRandom(seed);
+
+		// A town has about pi r^2 towns within r cells of it
+		double radius = Math.sqrt(averageDegree / Math.PI) * CELL_MILES;
+		int reach = (int) Math.ceil(radius / CELL_MILES);
+
+		for(int i = 0; i < towns; i++) {
+			int row = i / side;
+			int column = i % side;
+
+			for(int dr = 0; dr <= reach; dr++) {
+				for(int dc = -reach; dc <= reach; dc++) {
+					int c = column + dc;
+					int j = (row + dr) * side + c;
+					if(c < 0 || c >= side || j <= i || j >= towns)
+						continue;
+
+					boolean neighbor = dr + Math.abs(dc) == 1;
+					if(neighbor || Math.hypot(getX(j) - getX(i), getY(j) - getY(i)) < radius)
+						emitter.road(i, j, weight(random, i, j));
+				}
+			}
+		}
+	}
+
+	// A random tree grown by preferential attachment, then Chung-Lu roads
+	private void scaleFree(Emitter emitter) {
+		SplittableRandom random = new SplittableRandom(seed);
+
+		for(int i = 1; i < towns; i++)
+			emitter.road(i, powerLawTown(random, i), weight(random, 0, 0));
+
+		long extra = (long) (towns * averageDegree / 2) - (towns - 1);
+		for(long k = 0; k < extra; k++) {
+			int u = powerLawTown(random, towns);
+			int v = powerLawTown(random, towns);
+			if(u != v)
+				emitter.road(u, v, weight(random, 0, 0));
+		}
+	}
+
+	// Returns a town below limit, town i chosen in proportion to its expected degree (i + 1)^(-1 / (exponent - 1))
+	private static int powerLawTown(SplittableRandom random, int limit) {
+		double power = 1 - 1 / (DEGREE_EXPONENT - 1);
+		return Math.min(limit - 1, (int) (limit * Math.pow(random.nextDouble(), 1 / power)));
+	}
+
+	// Returns the length of a new road between towns u and v
+	private int weight(SplittableRandom random, int u, int v) {
+		switch(weightDistribution) {
+		case DISTANCE:
+			int miles = (int) Math.ceil(Math.hypot(getX(v) - getX(u), getY(v) - getY(u)));
+			return Math.max(minWeight, miles);
+		case EXPONENTIAL:
+			double mean = (minWeight + maxWeight) / 2.0;
+			int draw = (int) Math.round(-mean * Math.log(1 - random.nextDouble()));
+			return Math.max(minWeight, Math.min(maxWeight, draw));
+		default:
+			return minWeight + random.nextInt(maxWeight - minWeight + 1);
+		}
+	}
+
+	// Returns the number of a town named by townName
+	private static int townNumber(String name) {
+		return Integer.parseInt(name, 1, name.length(), 10);
+	}
+
+	// Returns a number in [0, 1) that depends only on the seed and the key
+	private static double unit(long seed, long key) {
+		long z = seed + key * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (z >>> 11) * 0x1.0p-53;
+	}
+
+	// Collects roads into batches for the consumer
+	private static class Emitter {
+		private final Consumer<RoadBatch> consumer;
+		private final RoadBatch batch;
+		private long count;
+
+		Emitter(Consumer<RoadBatch> consumer) {
+			this.consumer = consumer;
+			batch = new RoadBatch(BATCH_SIZE);
+		}
+
+		void road(int u, int v, int weight) {
+			batch.add("R" + count++, townName(u), townName(v), weight);
+			if(batch.size() == BATCH_SIZE)
+				flush();
+		}
+
+		void flush() {
+			if(batch.size() > 0) {
+				consumer.accept(batch);
+				batch.clear();
+			}
+		}
+	}
+}
@@ -0,0 +1,252 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * This is a class that streams roads out of a road network file. The file is memory-mapped
+ * a chunk at a time, each chunk is cut into pieces at line breaks and the pieces are
+ * parsed in parallel into RoadBatches, which are handed to the consumer in file order.
+ * Only one chunk is held at a time, so memory use does not grow with the file. A file of
+ * several chunks is read twice, once to check every line and once to hand the roads over,
+ * so a malformed line anywhere in the file stops the load before any road is consumed.
+ *
+ * Two formats are read:
+ * the road list format, one "roadName,miles;town1;town2" line per road, and
+ * DIMACS shortest path files (.gr), whose "a u v w" arc lines become a road "u-v" of
+ * w miles between towns "u" and "v". Comment and problem lines are skipped.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class RoadNetworkLoader {
+
+	/**
+	 * Formats of road network files
+	 */
+	public enum Format {
+
+		// roadName,miles;town1;town2
+		ROAD_LIST,
+
+		// DIMACS shortest path challenge .gr
+		DIMACS
+	}
+
+	// Bytes mapped at a time
+	private static final int CHUNK_SIZE = 32 << 20;
+
+	// Pieces each chunk is cut into for parallel parsing
+	private static final int PIECES = Runtime.getRuntime().availableProcessors() * 4;
+
+	private Format format;
+	private int chunkSize;
+
+	// Constructor
+	public RoadNetworkLoader(Format format) {
+		this(format, CHUNK_SIZE);
+	}
+
+	// Constructor mapping chunks of the given size, for tests of files spanning several chunks
+	RoadNetworkLoader(Format format, int chunkSize) {
+		this.format = format;
+		this.chunkSize = chunkSize;
+	}
+
+	// Returns the format of a file from its name: DIMACS for .gr files, the road list otherwise
+	public static Format formatOf(Path file) {
+		return file.getFileName().toString().endsWith(".gr") ? Format.DIMACS : Format.ROAD_LIST;
+	}
+
+	/**
+	 * Reads every road in the file
+	 * @param file the file to read
+	 * @param consumer receives the parsed roads in file order, one batch at a time, and
+	 * none of them if any line is malformed
+	 * @return the number of roads read
+	 * @throws IOException if the file cannot be read, or has a line too long to map
+	 * @throws IllegalArgumentException if a line is malformed
+	 */
+	public long load(Path file, Consumer<RoadBatch> consumer) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+
+			// A single chunk is parsed in full before its batches are handed over anyway
+			if(channel.size() > chunkSize)
+				readChunks(channel, batch -> { });
+			return readChunks(channel, consumer);
+		}
+	}
+
+	// Parses the whole file a chunk at a time, handing each chunk's batches to the consumer
+	private long readChunks(FileChannel channel, Consumer<RoadBatch> consumer) throws IOException {
+		long roads = 0;
+		long fileSize = channel.size();
+		long position = 0;
+		int length = chunkSize;
+
+		while(position < fileSize) {
+			int mapped = (int) Math.min(length, fileSize - position);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, mapped);
+			boolean last = position + mapped == fileSize;
+
+			// Only parse up to the last complete line of the chunk
+			int end = last ? mapped : lastLineEnd(buffer, mapped);
+			if(end < 0) {
+				// A line fills the whole chunk: map more of it, up to the largest buffer or the end of the file
+				if(mapped == Integer.MAX_VALUE)
+					throw new IOException("line longer than " + Integer.MAX_VALUE + " bytes at offset " + position);
+				length = (int) Math.min(Integer.MAX_VALUE, Math.min(2L * length, fileSize - position));
+				continue;
+			}
+
+			for(RoadBatch batch: parse(buffer, end)) {
+				roads += batch.size();
+				consumer.accept(batch);
+			}
+			position += end;
+		}
+		return roads;
+	}
+
+	// Parses the first end bytes of the buffer, one piece per task
+	private List<RoadBatch> parse(MappedByteBuffer buffer, int end) {
+
+		// Cut the chunk at line breaks near evenly spaced offsets
+		int[] cuts = new int[PIECES + 1];
+		for(int i = 1; i < PIECES; i++) {
+			int cut = Math.max(cuts[i - 1], (int) ((long) end * i / PIECES));
+			while(cut < end && cut > 0 && buffer.get(cut - 1) != '\n')
+				cut++;
+			cuts[i] = cut;
+		}
+		cuts[PIECES] = end;
+
+		return IntStream.range(0, PIECES).parallel()
+				.mapToObj(i -> parsePiece(buffer, cuts[i], cuts[i + 1]))
+				.collect(Collectors.toList());
+	}
+
+	// Parses the lines between two offsets
+	private RoadBatch parsePiece(MappedByteBuffer buffer, int from, int to) {
+		byte[] bytes = new byte[to - from];
+		buffer.get(from, bytes);
+		RoadBatch batch = new RoadBatch(bytes.length / 24);
+
+		int start = 0;
+		while(start < bytes.length) {
+			int end = start;
+			while(end < bytes.length && bytes[end] != '\n')
+				end++;
+
+			// Ignore the carriage return of CRLF files
+			int lineEnd = end > start && bytes[end - 1] == '\r' ? end - 1 : end;
+			if(lineEnd > start) {
+				if(format == Format.DIMACS)
+					parseArc(bytes, start, lineEnd, batch);
+				else
+					parseRoad(bytes, start, lineEnd, batch);
+			}
+			start = end + 1;
+		}
+		return batch;
+	}
+
+	// Parses "roadName,miles;town1;town2"
+	private void parseRoad(byte[] bytes, int start, int end, RoadBatch batch) {
+		int first = indexOf(bytes, start, end, (byte) ';');
+		int second = first < 0 ? -1 : indexOf(bytes, first + 1, end, (byte) ';');
+		int comma = first < 0 ? -1 : lastIndexOf(bytes, start, first, (byte) ',');
+
+		if(second < 0 || comma < 0)
+			throw malformed(bytes, start, end);
+
+		batch.add(text(bytes, start, comma), text(bytes, first + 1, second), text(bytes, second + 1, end),
+				number(bytes, comma + 1, first, start, end));
+	}
+
+	// Parses "a u v w", skipping comment and problem lines
+	private void parseArc(byte[] bytes, int start, int end, RoadBatch batch) {
+		if(bytes[start] != 'a')
+			return;
+
+		int[] fields = new int[6];
+		int count = 0;
+		int i = start + 1;
+
+		// Find the start and end of the three numbers
+		while(count < 6 && i < end) {
+			while(i < end && bytes[i] == ' ')
+				i++;
+			int fieldStart = i;
+			while(i < end && bytes[i] != ' ')
+				i++;
+			if(i > fieldStart) {
+				fields[count++] = fieldStart;
+				fields[count++] = i;
+			}
+		}
+		if(count < 6)
+			throw malformed(bytes, start, end);
+
+		String u = text(bytes, fields[0], fields[1]);
+		String v = text(bytes, fields[2], fields[3]);
+		batch.add(u + "-" + v, u, v, number(bytes, fields[4], fields[5], start, end));
+	}
+
+	// Returns the offset just past the last line break in the buffer, or -1 if there is none
+	private static int lastLineEnd(MappedByteBuffer buffer, int length) {
+		for(int i = length - 1; i >= 0; i--) {
+			if(buffer.get(i) == '\n')
+				return i + 1;
+		}
+		return -1;
+	}
+
+	private static int indexOf(byte[] bytes, int from, int to, byte b) {
+		for(int i = from; i < to; i++) {
+			if(bytes[i] == b)
+				return i;
+		}
+		return -1;
+	}
+
+	private static int lastIndexOf(byte[] bytes, int from, int to, byte b) {
+		for(int i = to - 1; i >= from; i--) {
+			if(bytes[i] == b)
+				return i;
+		}
+		return -1;
+	}
+
+	private static String text(byte[] bytes, int from, int to) {
+		return new String(bytes, from, to - from, StandardCharsets.UTF_8).trim();
+	}
+
+	// Parses a non-negative decimal number that fits an int, ignoring surrounding spaces
+	private static int number(byte[] bytes, int from, int to, int lineStart, int lineEnd) {
+		while(from < to && bytes[from] == ' ')
+			from++;
+		while(to > from && bytes[to - 1] == ' ')
+			to--;
+		if(from == to)
+			throw malformed(bytes, lineStart, lineEnd);
+
+		int value = 0;
+		for(int i = from; i < to; i++) {
+			int digit = bytes[i] - '0';
+			if(digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10)
+				throw malformed(bytes, lineStart, lineEnd);
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static IllegalArgumentException malformed(byte[] bytes, int start, int end) {
+		return new IllegalArgumentException("malformed road line: " + new String(bytes, start, end - start, StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,242 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * This is a class that holds a shortest path as primitive town and road ids of the
+ * CompactGraph snapshot it was found on: the towns visited, the road and miles of each hop,
+ * and the total distance. Nothing is formatted until asked, so callers that only need the
+ * distance or the town ids pay for no strings. toStrings() gives the same
+ * "A via Road to B 4 mi" list as Graph.shortestPath.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class Route implements Iterable<Route.Hop> {
+
+	private final CompactGraph graph;
+
+	// towns[i] and towns[i + 1] are joined by road roadIds[i] of miles[i] miles
+	private final int[] towns;
+	private final int[] roadIds;
+	private final int[] miles;
+	private final int distance;
+
+	// Constructor
+	private Route(CompactGraph graph, int[] towns, int[] roadIds, int[] miles, int distance) {
+		this.graph = graph;
+		this.towns = towns;
+		this.roadIds = roadIds;
+		this.miles = miles;
+		this.distance = distance;
+	}
+
+	/**
+	 * Builds the route to a target by walking back along the road slots a search used to
+	 * reach each town
+	 * @param graph snapshot that was searched
+	 * @param source id of the starting town
+	 * @param target id of the ending town, which the search reached
+	 * @param previousSlot the slot used to reach each town
+	 * @return the route from source to target
+	 */
+	static Route fromPreviousSlots(CompactGraph graph, int source, int target, IntUnaryOperator previousSlot) {
+		int hops = 0;
+		for(int t = target; t != source; t = graph.townOfSlot(previousSlot.applyAsInt(t)))
+			hops++;
+
+		// Fill the arrays from the end so no reversal is needed
+		int[] towns = new int[hops + 1];
+		int[] roadIds = new int[hops];
+		int[] miles = new int[hops];
+		int distance = 0;
+
+		towns[hops] = target;
+		for(int i = hops - 1; i >= 0; i--) {
+			int slot = previousSlot.applyAsInt(towns[i + 1]);
+			towns[i] = graph.townOfSlot(slot);
+			roadIds[i] = graph.roadId(slot);
+			miles[i] = graph.weight(slot);
+			distance += miles[i];
+		}
+		return new Route(graph, towns, roadIds, miles, distance);
+	}
+
+	/**
+	 * This is a class that collects a route one hop at a time, in order
+	 */
+	static class Builder {
+		private final CompactGraph graph;
+		private int[] towns;
+		private int[] roadIds;
+		private int[] miles;
+		private int hops;
+		private int distance;
+
+		// Starts a route at the source town
+		Builder(CompactGraph graph, int source) {
+			this.graph = graph;
+			towns = new int[16];
+			roadIds = new int[15];
+			miles = new int[15];
+			towns[0] = source;
+		}
+
+		// Appends a hop along a road to a town
+		void add(int roadId, int to, int length) {
+			if(hops == roadIds.length) {
+				towns = Arrays.copyOf(towns, towns.length * 2);
+				roadIds = Arrays.copyOf(roadIds, towns.length - 1);
+				miles = Arrays.copyOf(miles, towns.length - 1);
+			}
+			roadIds[hops] = roadId;
+			miles[hops] = length;
+			towns[++hops] = to;
+			distance += length;
+		}
+
+		Route build() {
+			return new Route(graph, Arrays.copyOf(towns, hops + 1), Arrays.copyOf(roadIds, hops),
+					Arrays.copyOf(miles, hops), distance);
+		}
+	}
+
+	// Returns the snapshot whose ids the route uses
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	// Returns the total length of the route in miles
+	public int getDistance() {
+		return distance;
+	}
+
+	// Returns the number of hops (roads) in the route
+	public int size() {
+		return roadIds.length;
+	}
+
+	// Returns the snapshot id of the i-th town visited, 0 being the source
+	public int getTownId(int i) {
+		return towns[i];
+	}
+
+	// Returns the snapshot ids of the towns visited, from source to destination
+	public int[] getTownIds() {
+		return towns.clone();
+	}
+
+	// Returns the i-th town visited, 0 being the source
+	public Town getTown(int i) {
+		return graph.getTown(towns[i]);
+	}
+
+	public Town getSource() {
+		return getTown(0);
+	}
+
+	public Town getDestination() {
+		return getTown(towns.length - 1);
+	}
+
+	// Returns the id of the road of hop i
+	public int getRoadId(int i) {
+		return roadIds[i];
+	}
+
+	// Returns the name of the road of hop i
+	public String getRoadName(int i) {
+		return graph.getRoadName(roadIds[i]);
+	}
+
+	// Returns the length of hop i in miles
+	public int getMiles(int i) {
+		return miles[i];
+	}
+
+	// Describes hop i in the shortestPath format: "A via Road to B 4 mi"
+	public String formatHop(int i) {
+		return getTown(i) + " via " + getRoadName(i) + " to " + getTown(i + 1) + " " + miles[i] + " mi";
+	}
+
+	/**
+	 * Formats the route like Graph.shortestPath
+	 * @return one "A via Road to B 4 mi" string per hop
+	 */
+	public ArrayList<String> toStrings() {
+		ArrayList<String> result = new ArrayList<>(roadIds.length);
+		for(int i = 0; i < roadIds.length; i++)
+			result.add(formatHop(i));
+		return result;
+	}
+
+	// Returns an iterator over the hops, which are created as they are reached
+	@Override
+	public Iterator<Hop> iterator() {
+		return new Iterator<Hop>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < roadIds.length;
+			}
+
+			@Override
+			public Hop next() {
+				if(next >= roadIds.length)
+					throw new NoSuchElementException();
+				return new Hop(next++);
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return toStrings() + " " + distance + " mi";
+	}
+
+	/**
+	 * This is a class that views one hop of a route
+	 */
+	public class Hop {
+		private final int index;
+
+		private Hop(int index) {
+			this.index = index;
+		}
+
+		public int getFromId() {
+			return towns[index];
+		}
+
+		public int getToId() {
+			return towns[index + 1];
+		}
+
+		public Town getFrom() {
+			return getTown(index);
+		}
+
+		public Town getTo() {
+			return getTown(index + 1);
+		}
+
+		public int getRoadId() {
+			return roadIds[index];
+		}
+
+		public String getRoadName() {
+			return Route.this.getRoadName(index);
+		}
+
+		public int getMiles() {
+			return miles[index];
+		}
+
+		@Override
+		public String toString() {
+			return formatHop(index);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * This is a class that cross-checks the routing engines against Graph.shortestPath on
+ * random queries. Engines may pick different paths among equally short ones, so the
+ * lengths of the paths are compared, and every path is checked to be a real chain of roads
+ * of the graph.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class RoutingCrossCheck {
+
+	// Largest graph checked against all-pairs matrices, which take 4 n^2 bytes or more
+	private static final int ALL_PAIRS_LIMIT = 5000;
+
+	// Landmarks of the ALT heuristic
+	private static final int LANDMARKS = 8;
+
+	private Graph graph;
+	private Town[] towns;
+
+	// Constructor
+	public RoutingCrossCheck(Graph graph) {
+		this.graph = graph;
+		towns = graph.vertexSet().toArray(new Town[0]);
+		Arrays.sort(towns, Comparator.comparing(Town::getName));
+	}
+
+	/**
+	 * Runs random queries through every engine
+	 * @param queries number of random town pairs
+	 * @param seed seed of the pairs
+	 * @return a description of every disagreement, empty if all engines agree
+	 */
+	public List<String> check(int queries, long seed) {
+		List<String> mismatches = new ArrayList<>();
+		if(towns.length == 0)
+			return mismatches;
+
+		CompactGraph snapshot = graph.snapshot();
+		ContractionHierarchy hierarchy = new ContractionHierarchy(snapshot);
+		AllPairsShortestPaths allPairs = towns.length <= ALL_PAIRS_LIMIT ? new AllPairsShortestPaths(snapshot) : null;
+		LandmarkHeuristic landmarks = new LandmarkHeuristic(graph, Math.min(LANDMARKS, towns.length));
+		EuclideanHeuristic straightLines = Arrays.stream(towns).allMatch(Town::hasLocation) ? straightLines() : null;
+
+		SplittableRandom random = new SplittableRandom(seed);
+		for(int q = 0; q < queries; q++) {
+			Town source = towns[random.nextInt(towns.length)];
+			Town destination = towns[random.nextInt(towns.length)];
+			int expected = length(path(() -> graph.shortestPath(source, destination)));
+			String query = source.getName() + " to " + destination.getName();
+
+			compare(mismatches, query, "bidirectional", expected, path(() -> graph.bidirectionalShortestPath(source, destination)));
+			compare(mismatches, query, "A* with landmarks", expected, path(() -> graph.shortestPath(source, destination, landmarks)));
+			compare(mismatches, query, "snapshot", expected, snapshot.shortestPath(source, destination));
+			compare(mismatches, query, "contraction hierarchy", expected, hierarchy.shortestPath(source, destination));
+
+			if(straightLines != null)
+				compare(mismatches, query, "A* with straight lines", expected, path(() -> graph.shortestPath(source, destination, straightLines)));
+			if(allPairs != null)
+				compare(mismatches, query, "all pairs", expected, allPairs.shortestPath(source, destination));
+
+			int distance = snapshot.distance(source, destination);
+			if(distance != (expected < 0 ? CompactGraph.UNREACHABLE : expected))
+				mismatches.add(query + ": snapshot distance " + distance + ", expected " + expected);
+		}
+		return mismatches;
+	}
+
+	/**
+	 * Runs random queries through a partitioned copy of the graph
+	 * @param partitions the graph split into regions, partitioned at its current version
+	 * @param queries number of random town pairs
+	 * @param seed seed of the pairs
+	 * @return a description of every disagreement, empty if the partitioned graph agrees
+	 */
+	public List<String> checkPartitioned(PartitionedGraph partitions, int queries, long seed) {
+		List<String> mismatches = new ArrayList<>();
+		if(towns.length == 0)
+			return mismatches;
+
+		SplittableRandom random = new SplittableRandom(seed);
+		for(int q = 0; q < queries; q++) {
+			Town source = towns[random.nextInt(towns.length)];
+			Town destination = towns[random.nextInt(towns.length)];
+			int expected = length(path(() -> graph.shortestPath(source, destination)));
+			String query = source.getName() + " to " + destination.getName() + " (regions "
+					+ partitions.regionOf(source) + " and " + partitions.regionOf(destination) + ")";
+
+			compare(mismatches, query, "partitioned", expected, partitions.shortestPath(source, destination));
+		}
+		return mismatches;
+	}
+
+	// Returns a straight-line heuristic scaled to the fewest miles per unit of any road, so it never overestimates
+	private EuclideanHeuristic straightLines() {
+		double milesPerUnit = Double.MAX_VALUE;
+		for(Road r: graph.edgeSet()) {
+			double units = Math.hypot(r.getSource().getX() - r.getDestination().getX(), r.getSource().getY() - r.getDestination().getY());
+			if(units > 0)
+				milesPerUnit = Math.min(milesPerUnit, r.getWeight() / units);
+		}
+		return new EuclideanHeuristic(milesPerUnit == Double.MAX_VALUE ? 0 : milesPerUnit);
+	}
+
+	// Returns the path found by a Graph search, which throws for unreachable towns, or null
+	private static List<String> path(Supplier<List<String>> search) {
+		try {
+			return search.get();
+		} catch(RuntimeException e) {
+			return null;
+		}
+	}
+
+	// Records a path whose length differs from the expected one, or that is not made of roads
+	private void compare(List<String> mismatches, String query, String engine, int expected, List<String> path) {
+		int actual = length(path);
+		if(actual != expected)
+			mismatches.add(query + ": " + engine + " found " + actual + " mi, expected " + expected);
+		else if(path != null && !connected(path))
+			mismatches.add(query + ": " + engine + " returned a broken path " + path);
+	}
+
+	// Returns true if every hop is a road of the graph of the stated length and hops join up
+	private boolean connected(List<String> path) {
+		String previous = null;
+		for(String hop: path) {
+			String[] parts = parseHop(hop);
+			Road road = graph.getEdge(townNamed(parts[0]), townNamed(parts[2]));
+
+			if(road == null || !road.getName().equals(parts[1]) || road.getWeight() != Integer.parseInt(parts[3]))
+				return false;
+			if(previous != null && !previous.equals(parts[0]))
+				return false;
+			previous = parts[2];
+		}
+		return true;
+	}
+
+	// Splits "A via Road to B 4 mi" into its town, road, town and miles
+	private static String[] parseHop(String hop) {
+		int via = hop.indexOf(" via ");
+		int to = hop.lastIndexOf(" to ");
+		int miles = hop.lastIndexOf(' ', hop.length() - 4);
+		return new String[] {hop.substring(0, via), hop.substring(via + 5, to), hop.substring(to + 4, miles),
+				hop.substring(miles + 1, hop.length() - 3)};
+	}
+
+	// Returns the total miles of a path, or -1 if there is none
+	private static int length(List<String> path) {
+		if(path == null)
+			return -1;
+
+		int miles = 0;
+		for(String hop: path)
+			miles += Integer.parseInt(parseHop(hop)[3]);
+		return miles;
+	}
+
+	private Town townNamed(String name) {
+		int i = Arrays.binarySearch(towns, new Town(name), Comparator.comparing(Town::getName));
+		return i < 0 ? null : towns[i];
+	}
+}
@@ -0,0 +1,23 @@
+/**
+ * This is an enum of the search engines TownGraphManager can answer getPath with.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public enum RoutingMode {
+
+	// Dijkstra's algorithm from the source, reusing cached shortest path trees
+	DIJKSTRA,
+
+	// Dijkstra's algorithm from both ends, stopping when the searches meet
+	BIDIRECTIONAL,
+
+	// Upward searches over a Contraction Hierarchy, rebuilt after the graph changes
+	CONTRACTION_HIERARCHIES,
+
+	// Next-hop lookups in precomputed all-pairs matrices, rebuilt after the graph changes;
+	// maps above AllPairsShortestPaths.MAX_TOWNS fall back to DIJKSTRA
+	ALL_PAIRS,
+
+	// Overlay routing across regions held by worker processes, repartitioned after the graph changes
+	PARTITIONED
+}
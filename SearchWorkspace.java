@@ -0,0 +1,111 @@
+import java.util.Arrays;
+
+/**
+ * This is a class that holds reusable Dijkstra search state over dense town ids: tentative
+ * distances, the road slot each town was reached through, and the heap. Entries carry a
+ * generation stamp, so starting a new search is O(1) instead of clearing every array.
+ * Graph searches, which have no road slots, store the id of the previous town instead.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class SearchWorkspace {
+
+	private int[] dist;
+	private int[] prevSlot;
+	private int[] stamps;
+	private int generation;
+	private IntMinHeap heap;
+
+	// Constructor for towns 0 to size - 1
+	public SearchWorkspace(int size) {
+		dist = new int[size];
+		prevSlot = new int[size];
+		stamps = new int[size];
+		generation = 1;
+		heap = new IntMinHeap(size);
+	}
+
+	// Returns the number of towns the workspace covers
+	public int size() {
+		return dist.length;
+	}
+
+	// Forgets the previous search
+	public void reset() {
+		heap.clear();
+
+		// Only clear the stamps when the generation counter wraps around
+		if(++generation == Integer.MAX_VALUE) {
+			Arrays.fill(stamps, 0);
+			generation = 1;
+		}
+	}
+
+	// Starts a search from the given town
+	public void start(int source) {
+		reset();
+		relax(source, 0, -1);
+	}
+
+	/**
+	 * Returns the tentative distance of a town in the current search
+	 * @param town the town id
+	 * @return the distance, or CompactGraph.UNREACHABLE if the town has not been reached
+	 */
+	public int distance(int town) {
+		return stamps[town] == generation ? dist[town] : CompactGraph.UNREACHABLE;
+	}
+
+	// Returns the road slot the town was reached through, or -1 for the source
+	public int previousSlot(int town) {
+		return prevSlot[town];
+	}
+
+	/**
+	 * Offers a town a path of the given length, queueing it if the path is shorter than
+	 * the one it already has
+	 * @param town the town id
+	 * @param distance length of the path
+	 * @param slot road slot the path arrives through
+	 * @return true if the town's distance improved
+	 */
+	public boolean relax(int town, int distance, int slot) {
+		return relax(town, distance, slot, distance);
+	}
+
+	/**
+	 * Offers a town a path of the given length, queueing it by a priority other than the
+	 * length, such as the length plus an A* estimate. A town that was already taken off
+	 * the queue is queued again if its path improves.
+	 * @param town the town id
+	 * @param distance length of the path
+	 * @param slot road slot the path arrives through
+	 * @param priority key the town is queued by
+	 * @return true if the town's distance improved
+	 */
+	public boolean relax(int town, int distance, int slot, int priority) {
+		if(distance >= distance(town))
+			return false;
+
+		dist[town] = distance;
+		prevSlot[town] = slot;
+		stamps[town] = generation;
+		heap.offer(town, priority);
+		return true;
+	}
+
+	// Returns true if there are queued towns left
+	public boolean hasNext() {
+		return !heap.isEmpty();
+	}
+
+	// Returns the smallest queued distance
+	public int peekDistance() {
+		return heap.peekKey();
+	}
+
+	// Removes and returns the queued town with the smallest distance
+	public int next() {
+		return heap.poll();
+	}
+}
@@ -0,0 +1,97 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * This is a class that implements a bounded least-recently-used cache of shortest path
+ * trees keyed by their source town, with hit and miss counters. All methods are
+ * synchronized so the cache can be shared by concurrent queries.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class ShortestPathCache {
+
+	private int capacity;
+	private long hits;
+	private long misses;
+	private LinkedHashMap<Town, ShortestPathTree> trees;
+
+	/**
+	 * Constructor
+	 * @param capacity maximum number of trees kept, 0 disables caching
+	 */
+	public ShortestPathCache(int capacity) {
+		this.capacity = capacity;
+
+		// Access-ordered so the eldest entry is the least recently used
+		trees = new LinkedHashMap<Town, ShortestPathTree>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Town, ShortestPathTree> eldest) {
+				return size() > ShortestPathCache.this.capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cached tree for a source town and records a hit or miss
+	 * @param source the source town
+	 * @return the tree, or null if none is cached
+	 */
+	public synchronized ShortestPathTree get(Town source) {
+		ShortestPathTree tree = trees.get(source);
+		if(tree == null)
+			misses++;
+		else
+			hits++;
+		return tree;
+	}
+
+	// Caches a tree under its source, evicting the least recently used tree when full
+	public synchronized void put(ShortestPathTree tree) {
+		if(capacity > 0)
+			trees.put(tree.getSource(), tree);
+	}
+
+	// Runs an action on every cached tree without changing their recency
+	public synchronized void forEach(Consumer<ShortestPathTree> action) {
+		trees.values().forEach(action);
+	}
+
+	// Drops every cached tree
+	public synchronized void clear() {
+		trees.clear();
+	}
+
+	// Returns the number of cached trees
+	public synchronized int size() {
+		return trees.size();
+	}
+
+	// Returns the maximum number of cached trees
+	public synchronized int getCapacity() {
+		return capacity;
+	}
+
+	// Sets the maximum number of cached trees, evicting the least recently used ones
+	public synchronized void setCapacity(int capacity) {
+		this.capacity = capacity;
+		while(trees.size() > capacity)
+			trees.remove(trees.keySet().iterator().next());
+	}
+
+	// Returns the number of lookups that found a tree
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	// Returns the number of lookups that did not find a tree
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	// Returns the fraction of lookups that found a tree
+	public synchronized double getHitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double) hits / total;
+	}
+}
@@ -0,0 +1,141 @@
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * This is a class that holds the result of one run of Dijkstra's algorithm: the cost of
+ * reaching each town from the source and the town it was reached from. Entries live in
+ * arrays indexed by the towns' graph ids. Trees cached by a Graph are repaired in place,
+ * under the graph's write lock, when a road weight changes.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class ShortestPathTree {
+
+	private Graph graph;
+	private Town source;
+
+	// Indexed by town id; towns[id] is null for towns that were not reached
+	private Town[] towns;
+	private int[] costs;
+	private Town[] previous;
+	private int reached;
+
+	/**
+	 * Constructor for an empty tree, filled by the search that grows it
+	 * @param graph the graph whose town ids index the tree
+	 * @param source the town the tree is grown from
+	 * @param capacity one more than the largest town id of the graph
+	 */
+	ShortestPathTree(Graph graph, Town source, int capacity) {
+		this.graph = graph;
+		this.source = source;
+		towns = new Town[capacity];
+		costs = new int[capacity];
+		previous = new Town[capacity];
+	}
+
+	// Returns the town the tree was grown from
+	public Town getSource() {
+		return source;
+	}
+
+	/**
+	 * Returns the cost of the shortest path from the source to a town
+	 * @param town the town to look up
+	 * @return the cost, or Integer.MAX_VALUE if the town was not reached
+	 */
+	public int getCost(Town town) {
+		int id = indexOf(town);
+		return id < 0 ? Integer.MAX_VALUE : costs[id];
+	}
+
+	/**
+	 * Returns the town before the given town on its shortest path
+	 * @param town the town to look up
+	 * @return the previous town, or null for the source and for unreached towns
+	 */
+	public Town getPrevious(Town town) {
+		int id = indexOf(town);
+		return id < 0 ? null : previous[id];
+	}
+
+	// Returns the towns reached from the source
+	public Set<Town> getTowns() {
+		return new AbstractSet<Town>() {
+			@Override
+			public int size() {
+				return reached;
+			}
+
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof Town && reaches((Town) o);
+			}
+
+			@Override
+			public Iterator<Town> iterator() {
+				return new Iterator<Town>() {
+					private int next = advance(0);
+
+					// Returns the first reached id at or after i
+					private int advance(int i) {
+						while(i < towns.length && towns[i] == null)
+							i++;
+						return i;
+					}
+
+					@Override
+					public boolean hasNext() {
+						return next < towns.length;
+					}
+
+					@Override
+					public Town next() {
+						if(next >= towns.length)
+							throw new NoSuchElementException();
+						Town town = towns[next];
+						next = advance(next + 1);
+						return town;
+					}
+				};
+			}
+		};
+	}
+
+	// Returns true if the town was reached from the source
+	public boolean reaches(Town town) {
+		return indexOf(town) >= 0;
+	}
+
+	// Records a new shortest path to a town of the graph
+	void update(Town town, int cost, Town previousTown) {
+		int id = graph.idOf(town);
+		if(towns[id] == null)
+			reached++;
+		towns[id] = town;
+		costs[id] = cost;
+		previous[id] = previousTown;
+	}
+
+	// Marks a town of the graph as not reached
+	void forget(Town town) {
+		int id = graph.idOf(town);
+		if(towns[id] != null)
+			reached--;
+		towns[id] = null;
+		previous[id] = null;
+	}
+
+	// Returns the id of a reached town, or -1; copies of the graph's towns are looked up by name
+	private int indexOf(Town town) {
+		if(town == null)
+			return -1;
+
+		int id = town.getId();
+		if(id < 0 || id >= towns.length || towns[id] != town)
+			id = graph.idOf(town);
+		return id >= 0 && id < towns.length && town.equals(towns[id]) ? id : -1;
+	}
+}
@@ -0,0 +1,242 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * This is a class that holds a minimum spanning forest of a CompactGraph snapshot: for
+ * each connected part of the road network, the cheapest set of roads that still joins all
+ * of its towns. Roads are ranked by weight and then by road id, so every road has a
+ * distinct rank, the forest is unique, and Kruskal's and Boruvka's algorithms return the
+ * same roads.
+ *
+ * Small graphs use Kruskal's algorithm: union-find over the roads in rank order. Large
+ * ones use a parallel Boruvka: in each round every component picks its cheapest road out
+ * in parallel, the picked roads are merged, and roads that now lie inside one component
+ * are filtered out. Components at least halve each round, so there are at most log n
+ * rounds.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class SpanningForest {
+
+	// Smallest number of roads Boruvka's parallel rounds are used for
+	private static final int PARALLEL_THRESHOLD = 100_000;
+
+	private final CompactGraph graph;
+	private final int[] roadIds;
+	private final long totalWeight;
+
+	// Constructor
+	private SpanningForest(CompactGraph graph, int[] roadIds, long totalWeight) {
+		this.graph = graph;
+		this.roadIds = roadIds;
+		this.totalWeight = totalWeight;
+	}
+
+	/**
+	 * Finds the minimum spanning forest with the algorithm suited to the graph's size. With
+	 * a single worker thread Boruvka's rounds cost more than sorting does, so Kruskal's
+	 * algorithm is used for every size.
+	 * @param graph the snapshot
+	 * @return the forest
+	 */
+	public static SpanningForest of(CompactGraph graph) {
+		if(graph.roadCount() < PARALLEL_THRESHOLD || ForkJoinPool.getCommonPoolParallelism() < 2)
+			return kruskal(graph);
+		return boruvka(graph);
+	}
+
+	/**
+	 * Finds the minimum spanning forest with Kruskal's algorithm
+	 * @param graph the snapshot
+	 * @return the forest
+	 */
+	public static SpanningForest kruskal(CompactGraph graph) {
+		Ends ends = new Ends(graph);
+
+		// Sort the roads by rank: weight in the high half of a key, road id in the low half
+		long[] keys = new long[ends.count];
+		int n = 0;
+		for(int r = 0; r < ends.from.length; r++) {
+			if(ends.from[r] >= 0)
+				keys[n++] = rank(ends.weight[r], r);
+		}
+		Arrays.sort(keys);
+
+		ComponentIndex components = components(graph.size());
+		boolean[] chosen = new boolean[ends.from.length];
+		int joined = 0;
+		for(int i = 0; i < keys.length && joined < graph.size() - 1; i++) {
+			int r = (int) keys[i];
+			if(components.union(ends.from[r], ends.to[r])) {
+				chosen[r] = true;
+				joined++;
+			}
+		}
+		return collect(graph, ends, chosen);
+	}
+
+	/**
+	 * Finds the minimum spanning forest with a parallel version of Boruvka's algorithm
+	 * @param graph the snapshot
+	 * @return the forest
+	 */
+	public static SpanningForest boruvka(CompactGraph graph) {
+		Ends ends = new Ends(graph);
+		int towns = graph.size();
+
+		ComponentIndex components = components(towns);
+		int[] component = IntStream.range(0, towns).toArray();
+		boolean[] chosen = new boolean[ends.from.length];
+		AtomicLongArray cheapest = new AtomicLongArray(towns);
+
+		// Roads that may still join two components
+		int[] live = IntStream.range(0, ends.from.length).filter(r -> ends.from[r] >= 0).toArray();
+
+		while(live.length > 0) {
+			IntStream.range(0, towns).parallel().forEach(c -> cheapest.set(c, Long.MAX_VALUE));
+
+			// Every component finds its cheapest road out
+			int[] roads = live;
+			IntStream.range(0, roads.length).parallel().forEach(i -> {
+				int r = roads[i];
+				long key = rank(ends.weight[r], r);
+				lower(cheapest, component[ends.from[r]], key);
+				lower(cheapest, component[ends.to[r]], key);
+			});
+
+			// Merge along the picked roads; both components may pick the same one
+			for(int c = 0; c < towns; c++) {
+				long key = cheapest.get(c);
+				if(key == Long.MAX_VALUE)
+					continue;
+
+				int r = (int) key;
+				if(!chosen[r] && components.union(ends.from[r], ends.to[r]))
+					chosen[r] = true;
+			}
+
+			// Relabel the towns and drop the roads that are now inside a component
+			IntStream.range(0, towns).parallel().forEach(t -> component[t] = components.find(t));
+			live = Arrays.stream(roads).parallel()
+					.filter(r -> component[ends.from[r]] != component[ends.to[r]])
+					.toArray();
+		}
+		return collect(graph, ends, chosen);
+	}
+
+	// Returns the rank key of a road: by weight, then by id
+	private static long rank(int weight, int roadId) {
+		return ((long) weight << 32) | roadId;
+	}
+
+	// Lowers a slot of the array to the key if the key is smaller
+	private static void lower(AtomicLongArray array, int i, long key) {
+		long current = array.get(i);
+		while(key < current && !array.compareAndSet(i, current, key))
+			current = array.get(i);
+	}
+
+	// Returns an index with every town in a component of its own
+	private static ComponentIndex components(int towns) {
+		ComponentIndex components = new ComponentIndex(towns);
+		for(int t = 0; t < towns; t++)
+			components.add(t);
+		return components;
+	}
+
+	// Builds the forest from the chosen roads, in road id order
+	private static SpanningForest collect(CompactGraph graph, Ends ends, boolean[] chosen) {
+		int count = 0;
+		for(boolean c: chosen) {
+			if(c)
+				count++;
+		}
+
+		int[] roadIds = new int[count];
+		long totalWeight = 0;
+		int i = 0;
+		for(int r = 0; r < chosen.length; r++) {
+			if(chosen[r]) {
+				roadIds[i++] = r;
+				totalWeight += ends.weight[r];
+			}
+		}
+		return new SpanningForest(graph, roadIds, totalWeight);
+	}
+
+	/**
+	 * This is a class that holds the two towns and the weight of each road of a snapshot,
+	 * indexed by road id. Roads from a town to itself are never in a forest and are left
+	 * out, with from set to -1.
+	 */
+	private static class Ends {
+		final int[] from;
+		final int[] to;
+		final int[] weight;
+		final int count;
+
+		Ends(CompactGraph graph) {
+			from = new int[graph.roadCount()];
+			to = new int[graph.roadCount()];
+			weight = new int[graph.roadCount()];
+			Arrays.fill(from, -1);
+
+			// Every road is stored once from each end; take it from the lower one
+			int roads = 0;
+			for(int u = 0; u < graph.size(); u++) {
+				for(int slot = graph.firstSlot(u); slot < graph.endSlot(u); slot++) {
+					int v = graph.target(slot);
+					if(u < v) {
+						int r = graph.roadId(slot);
+						from[r] = u;
+						to[r] = v;
+						weight[r] = graph.weight(slot);
+						roads++;
+					}
+				}
+			}
+			count = roads;
+		}
+	}
+
+	// Returns the snapshot whose road ids the forest uses
+	public CompactGraph getGraph() {
+		return graph;
+	}
+
+	// Returns the number of roads in the forest
+	public int size() {
+		return roadIds.length;
+	}
+
+	// Returns the ids of the roads in the forest, in increasing order
+	public int[] getRoadIds() {
+		return roadIds.clone();
+	}
+
+	// Returns the names of the roads in the forest, in road id order
+	public ArrayList<String> getRoadNames() {
+		ArrayList<String> names = new ArrayList<>(roadIds.length);
+		for(int r: roadIds)
+			names.add(graph.getRoadName(r));
+		return names;
+	}
+
+	// Returns the total weight of the roads in the forest
+	public long getTotalWeight() {
+		return totalWeight;
+	}
+
+	// Returns the number of trees, one per connected component
+	public int getTreeCount() {
+		return graph.size() - roadIds.length;
+	}
+
+	@Override
+	public String toString() {
+		return roadIds.length + " roads, " + totalWeight + " mi, " + getTreeCount() + " trees";
+	}
+}
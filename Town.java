@@ -9,6 +9,14 @@ import java.util.List;
 public class Town implements Comparable<Town>{
 	private String name;
 	private List<Town> adjacentTowns;
+
+	// Optional map coordinates used by distance heuristics
+	private double x;
+	private double y;
+	private boolean located;
+
+	// Dense id assigned by the graph holding the town, -1 while in none
+	private int id = -1;
 	
 	// Default Constructor no name
 	public Town() {
@@ -20,6 +28,9 @@ public class Town implements Comparable<Town>{
 	public Town(Town newTown) {
 	    name = newTown.getName();
 	    adjacentTowns = new ArrayList<>(newTown.adjacentTowns);
+	    x = newTown.x;
+	    y = newTown.y;
+	    located = newTown.located;
 	}
 
 	
@@ -29,10 +40,24 @@ public class Town implements Comparable<Town>{
 		adjacentTowns = new ArrayList<Town>();
 	}
 
+	/**
+	 * Constructor with name and coordinates. For great-circle distances x is the
+	 * longitude and y the latitude, in degrees.
+	 * @param name name of the town
+	 * @param x horizontal coordinate or longitude
+	 * @param y vertical coordinate or latitude
+	 */
+	public Town(String name, double x, double y) {
+		this(name);
+		setLocation(x, y);
+	}
+
 	@Override
 	// Returns true if the town names are equal, false if not
 	public boolean equals(Object obj) {
-		return obj.hashCode() == name.hashCode();
+		if(this == obj)
+			return true;
+		return obj instanceof Town && name.equals(((Town) obj).name);
 	}
 	
 	/**
@@ -42,6 +67,21 @@ public class Town implements Comparable<Town>{
 		return name;
 	}
 	
+	/**
+	 * Returns the id of the town in the graph that last added it. Ids are dense, starting at
+	 * 0, and the id of a removed town is given to the next town added. A town in several
+	 * graphs keeps only the last id, so each graph also records the ids of its own towns.
+	 * @return the id, or -1 if the town is in no graph
+	 */
+	public int getId() {
+		return id;
+	}
+
+	// Sets the id of the town, called by the graph adding or removing it
+	void setId(int id) {
+		this.id = id;
+	}
+
 	/**
 	 * Set the town name.
 	 * @param newName
@@ -51,6 +91,38 @@ public class Town implements Comparable<Town>{
 	}
 	
 	
+	/**
+	 * Set the town coordinates.
+	 * @param x horizontal coordinate or longitude
+	 * @param y vertical coordinate or latitude
+	 */
+	public void setLocation(double x, double y) {
+		this.x = x;
+		this.y = y;
+		located = true;
+	}
+
+	/**
+	 * @return true if the town has coordinates
+	 */
+	public boolean hasLocation() {
+		return located;
+	}
+
+	/**
+	 * @return horizontal coordinate or longitude of the town
+	 */
+	public double getX() {
+		return x;
+	}
+
+	/**
+	 * @return vertical coordinate or latitude of the town
+	 */
+	public double getY() {
+		return y;
+	}
+
 	/**
 	 * Returns a list of the adjacent towns
 	 * @return adjacentTown
@@ -1,10 +1,19 @@
-import java.util.Set;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
  * This is a manager class for the Town, Road, and Graph class implementations.
+ * Queries may run on any number of threads while changes are made; changes are applied
+ * one at a time.
  * @author Daniel Xu
  * Version: 05/08/2023
  */
@@ -13,8 +22,194 @@ public class TownGraphManager implements TownGraphManagerInterface{
 
 	private Graph graph;
 
+	// Index of the graph's towns by (normalized) name
+	private Map<String, Town> towns;
+	private boolean normalizeNames;
+
+	// Search engine used by getPath
+	private volatile RoutingMode routingMode;
+
+	// Preprocessed hierarchy for CONTRACTION_HIERARCHIES routing
+	private volatile ContractionHierarchy hierarchy;
+
+	// Precomputed matrices for ALL_PAIRS routing
+	private volatile AllPairsShortestPaths allPairs;
+
+	// Regions and their workers for PARTITIONED routing
+	private volatile PartitionedGraph partitions;
+	private volatile int regions = 4;
+	private volatile boolean workerProcesses = true;
+
 	public TownGraphManager() {
+		this(false);
+	}
+
+	/**
+	 * Creates a manager whose town lookups optionally ignore case and
+	 * surrounding whitespace, so "Rockville" and " rockville " name the same town.
+	 * @param normalizeNames true to normalize town names before lookup
+	 */
+	public TownGraphManager(boolean normalizeNames) {
 		graph = new Graph();
+		towns = new ConcurrentHashMap<>();
+		this.normalizeNames = normalizeNames;
+		routingMode = RoutingMode.DIJKSTRA;
+	}
+
+	/**
+	 * Returns the metrics of this manager's calls and its graph's searches, which can be
+	 * enabled, registered with JMX or given listeners
+	 * @return the metrics
+	 */
+	public GraphMetrics getMetrics() {
+		return graph.getMetrics();
+	}
+
+	/**
+	 * Returns the search engine used by getPath
+	 * @return the routing mode
+	 */
+	public RoutingMode getRoutingMode() {
+		return routingMode;
+	}
+
+	/**
+	 * Sets the search engine used by getPath. Every mode returns a shortest path in the
+	 * same format.
+	 * @param routingMode the routing mode
+	 */
+	public void setRoutingMode(RoutingMode routingMode) {
+		this.routingMode = routingMode;
+	}
+
+	/**
+	 * Returns a Contraction Hierarchy of the current graph, preprocessing it again only
+	 * if the graph has changed since it was last built
+	 * @return the hierarchy, which reports its preprocessing time and shortcut count
+	 */
+	public ContractionHierarchy prepareContractionHierarchy() {
+		ContractionHierarchy current = hierarchy;
+		if(current == null || current.getVersion() != graph.getVersion()) {
+			current = new ContractionHierarchy(graph.snapshot());
+			hierarchy = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Returns all-pairs shortest path matrices of the current graph, computing them again
+	 * only if the graph has changed since they were last built. Meant for maps of up to
+	 * a few tens of thousands of towns.
+	 * @return the matrices, which report their build time and memory use
+	 */
+	public AllPairsShortestPaths prepareAllPairs() {
+		AllPairsShortestPaths current = allPairs;
+		if(current == null || current.getVersion() != graph.getVersion()) {
+			current = new AllPairsShortestPaths(graph.snapshot());
+			allPairs = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Sets how PARTITIONED routing splits the graph, stopping the current workers so the
+	 * next query partitions it again
+	 * @param regions number of regions
+	 * @param processes true to run each region's worker in a JVM process of its own, false
+	 * to run the workers as threads of this JVM
+	 * @throws IllegalArgumentException if regions is not positive
+	 */
+	public synchronized void setPartitioning(int regions, boolean processes) {
+		if(regions < 1)
+			throw new IllegalArgumentException("regions must be positive: " + regions);
+		this.regions = regions;
+		workerProcesses = processes;
+		closePartitions();
+	}
+
+	/**
+	 * Returns the current graph split into regions with a worker for each, partitioning
+	 * it again only if the graph has changed since it was last partitioned
+	 * @return the partitioned graph, which reports its boundary size and cut roads
+	 * @throws IOException if a worker cannot be started or reached
+	 */
+	public synchronized PartitionedGraph preparePartitions() throws IOException {
+		PartitionedGraph current = partitions;
+		if(current == null || current.isClosed() || current.getVersion() != graph.getVersion()) {
+			if(current != null)
+				current.close();
+			partitions = null;
+			current = new PartitionedGraph(graph, regions, workerProcesses);
+			partitions = current;
+		}
+		return current;
+	}
+
+	/**
+	 * Answers a PARTITIONED query. The partitions are acquired under this manager's lock,
+	 * which every replacement or close takes too, so their workers keep running until the
+	 * query is done even if another thread replaces or closes them meanwhile. If a worker
+	 * dies or its connection breaks, the partitions are closed so the next query starts
+	 * new workers.
+	 * @throws UncheckedIOException if the workers cannot be started or reached
+	 */
+	private ArrayList<String> partitionedPath(Town source, Town destination) {
+		PartitionedGraph current;
+		synchronized(this) {
+			try {
+				current = preparePartitions();
+			} catch(IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			current.acquire();
+		}
+		try {
+			return current.shortestPath(source, destination);
+		} catch(UncheckedIOException e) {
+			current.close();
+			throw e;
+		} finally {
+			current.release();
+		}
+	}
+
+	/**
+	 * Stops the workers of PARTITIONED routing, if any are running, once the queries
+	 * using them have finished
+	 */
+	public synchronized void closePartitions() {
+		PartitionedGraph current = partitions;
+		partitions = null;
+		if(current != null)
+			current.close();
+	}
+
+	/**
+	 * Returns the length of the shortest path between two towns from the all-pairs
+	 * matrices, preparing them first if needed. Maps of more than
+	 * AllPairsShortestPaths.MAX_TOWNS towns are searched from town 1 instead.
+	 * @param town1 name of town 1
+	 * @param town2 name of town 2
+	 * @return the distance in miles, or CompactGraph.UNREACHABLE if there is no path
+	 */
+	public int getDistance(String town1, String town2) {
+		if(!allPairsFits())
+			return graph.snapshot().distance(getTown(town1), getTown(town2));
+		return prepareAllPairs().distance(getTown(town1), getTown(town2));
+	}
+
+	// Returns true if the graph is small enough for all-pairs matrices, counting its towns without taking a snapshot
+	private boolean allPairsFits() {
+		return graph.getTownCount() <= AllPairsShortestPaths.MAX_TOWNS;
+	}
+
+	/**
+	 * Returns an immutable snapshot of the current towns and roads. Readers can route on
+	 * the snapshot without ever waiting for, or seeing part of, a concurrent change.
+	 * @return the latest published snapshot
+	 */
+	public CompactGraph getSnapshot() {
+		return graph.snapshot();
 	}
 
 	/**
@@ -22,11 +217,85 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	 * @param town1 name of town 1 (lastname, firstname)
 	 * @param town2 name of town 2 (lastname, firstname)
 	 * @param roadName name of road
-	 * @return true if the road was added successfully
+	 * @return true if the road was added, false if the towns are already joined by a road
 	 */
-	public boolean addRoad(String town1, String town2, int weight, String roadName) {
-		graph.addEdge(getTown(town1), getTown(town2), weight, roadName);
-		return true;
+	public synchronized boolean addRoad(String town1, String town2, int weight, String roadName) {
+		long start = graph.getMetrics().start();
+		Road added = graph.addEdge(getTown(town1), getTown(town2), weight, roadName);
+		graph.getMetrics().record(GraphMetrics.Operation.ADD_ROAD, start);
+		return added != null;
+	}
+
+	/**
+	 * Adds every road of a road network file, creating towns as they are first named.
+	 * Files ending in .gr are read as DIMACS shortest path files, others as one
+	 * "roadName,miles;town1;town2" line per road.
+	 * @param file the file to read
+	 * @return the number of roads read from the file
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if a line is malformed
+	 */
+	public long importRoads(Path file) throws IOException {
+		RoadNetworkLoader loader = new RoadNetworkLoader(RoadNetworkLoader.formatOf(file));
+		return loader.load(file, this::addRoads);
+	}
+
+	/**
+	 * Writes the current towns and roads to a binary snapshot file that loadSnapshot
+	 * can read back
+	 * @param file the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void saveSnapshot(Path file) throws IOException {
+		graph.snapshot().save(file);
+	}
+
+	/**
+	 * Fills an empty manager from a binary snapshot file written by saveSnapshot. Queries
+	 * are answered from the loaded snapshot; its roads are copied into the graph only when
+	 * the graph is first changed or searched road by road.
+	 * @param file the file to read
+	 * @return the number of towns read
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if the file is not a snapshot or is corrupt
+	 * @throws IllegalStateException if the manager already has towns
+	 */
+	public synchronized int loadSnapshot(Path file) throws IOException {
+		if(!towns.isEmpty())
+			throw new IllegalStateException("manager already has towns");
+
+		CompactGraph compact = CompactGraph.load(file);
+		graph.restore(compact);
+		for(int i = 0; i < compact.size(); i++)
+			towns.put(key(compact.getTown(i).getName()), compact.getTown(i));
+		return compact.size();
+	}
+
+	/**
+	 * Adds a batch of roads, creating towns as they are first named. The whole batch is
+	 * added under a single lock of the graph.
+	 * @param roads the roads to add
+	 */
+	public synchronized void addRoads(RoadBatch roads) {
+		graph.batch(() -> {
+			for(int i = 0; i < roads.size(); i++) {
+				Town source = townNamed(roads.getSource(i));
+				Town destination = townNamed(roads.getDestination(i));
+				graph.addEdge(source, destination, roads.getWeight(i), roads.getRoadName(i));
+			}
+		});
+	}
+
+	// Returns the town with the given name, adding it if it is not in the graph yet
+	private Town townNamed(String name) {
+		String key = key(name);
+		Town town = towns.get(key);
+		if(town == null) {
+			town = new Town(name);
+			graph.addVertex(town);
+			towns.put(key, town);
+		}
+		return town;
 	}
 
 	/**
@@ -44,8 +313,32 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	 * @param v the town's name  (lastname, firstname)
 	 * @return true if the town was successfully added, false if not
 	 */
-	public boolean addTown(String v) {
-		graph.addVertex(new Town(v));
+	public synchronized boolean addTown(String v) {
+		if(v == null)
+			return false;
+		String key = key(v);
+
+		// If the town is already indexed
+		if(towns.containsKey(key))
+			return true;
+
+		Town town = new Town(v);
+		graph.addVertex(town);
+		towns.put(key, town);
+		return true;
+	}
+
+	/**
+	 * Adds a town with map coordinates to the graph
+	 * @param v the town's name
+	 * @param x horizontal coordinate or longitude
+	 * @param y vertical coordinate or latitude
+	 * @return true if the town was successfully added, false if not
+	 */
+	public synchronized boolean addTown(String v, double x, double y) {
+		if(!addTown(v))
+			return false;
+		getTown(v).setLocation(x, y);
 		return true;
 	}
 
@@ -55,15 +348,16 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	 * @return the Town specified by the name, or null if town does not exist
 	 */
 	public Town getTown(String name) {
-		Set<Town> allTowns = graph.vertexSet();
-
-		// Find the town in the set
-		for(Town t: allTowns) {
-			if(t.getName().equals(name))
-				return t;
-		}
+		if(name == null)
+			return null;
+		return towns.get(key(name));
+	}
 
-		return null;
+	// Returns the index key for a town name
+	private String key(String name) {
+		if(name == null || !normalizeNames)
+			return name;
+		return name.trim().toLowerCase(Locale.ROOT);
 	}
 
 
@@ -94,10 +388,10 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	public ArrayList<String> allRoads() {
 		ArrayList<String> roadsArrayList = new ArrayList<>();
 
-		// Loop through the set of the roads and add them to the ArrayList
-		Set<Road> roads = graph.edgeSet();
-		for(Road r: roads) {
-			roadsArrayList.add(r.getName());
+		// Add the roads of one consistent version of the graph
+		CompactGraph roads = graph.snapshot();
+		for(int r = 0; r < roads.roadCount(); r++) {
+			roadsArrayList.add(roads.getRoadName(r));
 		}
 
 		Collections.sort(roadsArrayList);
@@ -111,13 +405,15 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	 * @param roadName the road name
 	 * @return true if the road was successfully deleted, false if not
 	 */
-	public boolean deleteRoadConnection(String town1, String town2, String road) {
-		
+	public synchronized boolean deleteRoadConnection(String town1, String town2, String road) {
+		long start = graph.getMetrics().start();
 		try {
 			graph.removeEdge(getTown(town1), getTown(town2), 0, road);
 		}
 		catch (Exception e) {
 			return false;
+		} finally {
+			graph.getMetrics().record(GraphMetrics.Operation.DELETE_ROAD, start);
 		}
 		return true;
 	}
@@ -127,8 +423,14 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	 * @param v name of town (lastname, firstname)
 	 * @return true if the town was successfully deleted, false if not
 	 */
-	public boolean deleteTown(String v) {
-		return graph.removeVertex(getTown(v));
+	public synchronized boolean deleteTown(String v) {
+		if(v == null)
+			return false;
+		long start = graph.getMetrics().start();
+		Town town = towns.remove(key(v));
+		boolean removed = graph.removeVertex(town);
+		graph.getMetrics().record(GraphMetrics.Operation.DELETE_TOWN, start);
+		return removed;
 	}
 
 	/**
@@ -137,11 +439,10 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	 */
 	public ArrayList<String> allTowns() {
 		
-		// Create a set of the towns and the ArrayList to return
-		Set<Town> allTowns = graph.vertexSet();
+		// Create the ArrayList to return from the town index
 		ArrayList<String> toReturn = new ArrayList<>();
 
-		for(Town t: allTowns) {
+		for(Town t: towns.values()) {
 			toReturn.add(t.getName());
 		}
 		// Sort the ArrayList
@@ -156,19 +457,173 @@ public class TownGraphManager implements TownGraphManagerInterface{
 	 * @param town2 name of town 2 (lastname, firstname)
 	 * @return an Arraylist of roads connecting the two towns together, null if the
 	 * towns have no path to connect them.
+	 * @throws UncheckedIOException if the workers of PARTITIONED routing fail
 	 */
 	@Override
 	public ArrayList<String> getPath(String town1, String town2) {
 	
 		ArrayList<String> path = new ArrayList<>();
+		long start = graph.getMetrics().start();
 
 		// Get the shortest path or return null if no path exist.
 		try {
-			path = graph.shortestPath(getTown(town1), getTown(town2));
+			// Towns in different components are answered without a search
+			if(!graph.connected(getTown(town1), getTown(town2)))
+				return null;
+
+			switch(routingMode) {
+			case BIDIRECTIONAL:
+				path = graph.bidirectionalShortestPath(getTown(town1), getTown(town2));
+				break;
+			case CONTRACTION_HIERARCHIES:
+				path = prepareContractionHierarchy().shortestPath(getTown(town1), getTown(town2));
+				break;
+			case ALL_PAIRS:
+				// Maps too large for the matrices are searched from the source instead
+				if(allPairsFits())
+					path = prepareAllPairs().shortestPath(getTown(town1), getTown(town2));
+				else
+					path = graph.shortestPath(getTown(town1), getTown(town2));
+				break;
+			case PARTITIONED:
+				path = partitionedPath(getTown(town1), getTown(town2));
+				break;
+			default:
+				path = graph.shortestPath(getTown(town1), getTown(town2));
+			}
+		} catch(UncheckedIOException e) {
+			// A failed worker is an error, not a missing path
+			throw e;
 		} catch(Exception e) {
 			return null;
+		} finally {
+			graph.getMetrics().record(GraphMetrics.Operation.GET_PATH, start);
 		}
 
 		return path;
 	}
+
+	/**
+	 * Returns the shortest path from town 1 to town 2 as town and road ids, with its total
+	 * distance. Strings are only built if the route is formatted.
+	 * @param town1 name of town 1
+	 * @param town2 name of town 2
+	 * @return the route, or null if either town is unknown or there is no path
+	 */
+	public Route getRoute(String town1, String town2) {
+		long start = graph.getMetrics().start();
+		try {
+			if(!graph.connected(getTown(town1), getTown(town2)))
+				return null;
+
+			switch(routingMode) {
+			case CONTRACTION_HIERARCHIES:
+				return prepareContractionHierarchy().route(getTown(town1), getTown(town2));
+			case ALL_PAIRS:
+				if(allPairsFits())
+					return prepareAllPairs().route(getTown(town1), getTown(town2));
+				return graph.route(getTown(town1), getTown(town2));
+			default:
+				return graph.route(getTown(town1), getTown(town2));
+			}
+		} finally {
+			graph.getMetrics().record(GraphMetrics.Operation.GET_PATH, start);
+		}
+	}
+
+	/**
+	 * Returns the k shortest loopless routes from town 1 to town 2, shortest first, so
+	 * planners can offer alternatives to getRoute
+	 * @param town1 name of town 1
+	 * @param town2 name of town 2
+	 * @param k number of routes wanted
+	 * @return up to k routes, empty if a town is unknown or the towns are not connected
+	 */
+	public List<Route> getAlternativeRoutes(String town1, String town2, int k) {
+		return graph.kShortestPaths(getTown(town1), getTown(town2), k);
+	}
+
+	/**
+	 * Returns the shortest path from town 1 to town 2 using an A* search
+	 * @param town1 name of town 1
+	 * @param town2 name of town 2
+	 * @param heuristic lower bound on the remaining distance, such as a
+	 * GreatCircleHeuristic or LandmarkHeuristic
+	 * @return an Arraylist of roads connecting the two towns together, null if the
+	 * towns have no path to connect them.
+	 */
+	public ArrayList<String> getPath(String town1, String town2, DistanceHeuristic heuristic) {
+
+		// Get the shortest path or return null if no path exist.
+		try {
+			return graph.shortestPath(getTown(town1), getTown(town2), heuristic);
+		} catch(Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns true if a path of roads joins two towns, without searching for it
+	 * @param town1 name of town 1
+	 * @param town2 name of town 2
+	 * @return true if both towns exist and are connected
+	 */
+	public boolean isConnected(String town1, String town2) {
+		return graph.connected(getTown(town1), getTown(town2));
+	}
+
+	/**
+	 * Returns the number of towns in each connected part of the road network, for
+	 * capacity planning
+	 * @return the component sizes, largest first
+	 */
+	public List<Integer> getComponentSizes() {
+		List<Integer> sizes = new ArrayList<>();
+		for(int size: graph.componentSizes())
+			sizes.add(size);
+		return sizes;
+	}
+
+	/**
+	 * Returns the cheapest set of roads that keeps every connected part of the road
+	 * network connected, for maintenance-crew planning
+	 * @return the roads of the minimum spanning forest, with their names and total weight
+	 */
+	public SpanningForest getMinimumSpanningForest() {
+		return graph.minimumSpanningForest();
+	}
+
+	/**
+	 * Returns every town within a number of miles of a town, for coverage maps
+	 * @param town name of the town to measure from
+	 * @param miles the largest distance to include
+	 * @return the names of the towns and their distances, nearest first, starting with the
+	 * town itself; empty if the town is unknown
+	 */
+	public LinkedHashMap<String, Integer> getTownsWithin(String town, int miles) {
+		LinkedHashMap<String, Integer> result = new LinkedHashMap<>();
+		for(Map.Entry<Town, Integer> entry: graph.snapshot().townsWithin(getTown(town), miles).entrySet())
+			result.put(entry.getKey().getName(), entry.getValue());
+		return result;
+	}
+
+	/**
+	 * Returns the road distances from each origin town to each destination town
+	 * @param origins names of the origin towns
+	 * @param destinations names of the destination towns
+	 * @param withPredecessors true to keep the data needed to rebuild each path
+	 * @return the distance matrix, indexed by origin then destination; unknown towns
+	 * and unconnected pairs have distance CompactGraph.UNREACHABLE
+	 */
+	public DistanceMatrix getDistanceMatrix(List<String> origins, List<String> destinations, boolean withPredecessors) {
+		return graph.distanceMatrix(towns(origins), towns(destinations), withPredecessors);
+	}
+
+	// Looks up the towns with the given names, null for unknown names
+	private List<Town> towns(List<String> names) {
+		List<Town> result = new ArrayList<>(names.size());
+		for(String name: names)
+			result.add(getTown(name));
+		return result;
+	}
 }
@@ -3,6 +3,22 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.ObjectName;
+
+import com.sun.management.ThreadMXBean;
+
 /**
  * student test for Town Graph Manager.
  * @author Daniel Xu
@@ -94,6 +110,16 @@ class TownGraphManager_STUDENT_Test {
 		assertEquals(graph.getEdge(d, e).getName(), graphManager.getRoad("d", "e"));
 	}
 
+	@Test
+	void testAddRoad() {
+		assertTrue(graphManager.addRoad("a", "g", 9, "AG"));
+		assertEquals("AG", graphManager.getRoad("g", "a"));
+
+		// A second road between the same towns is refused, and the first one kept
+		assertFalse(graphManager.addRoad("g", "a", 1, "GA"));
+		assertEquals("AG", graphManager.getRoad("a", "g"));
+	}
+
 	@Test
 	void testGetTown() {
 		assertEquals(a, graphManager.getTown("a"));
@@ -101,6 +127,22 @@ class TownGraphManager_STUDENT_Test {
 		
 	}
 
+	@Test
+	void testGetTownNormalized() {
+		TownGraphManager manager = new TownGraphManager(true);
+		manager.addTown("Rockville");
+		manager.addTown(" rockville ");
+
+		assertEquals(1, manager.allTowns().size());
+		assertEquals("Rockville", manager.getTown("ROCKVILLE ").getName());
+		assertNull(graphManager.getTown("A"));
+
+		// A null name is refused without touching the index
+		assertFalse(manager.addTown(null));
+		assertFalse(manager.deleteTown(null));
+		assertEquals(1, manager.allTowns().size());
+	}
+
 	@Test
 	void testContainsTown() {
 		assertTrue(graphManager.containsTown("a"));
@@ -135,6 +177,578 @@ class TownGraphManager_STUDENT_Test {
 		
 		assertEquals(false, graphManager.containsTown("b"));
 	}
+
+	@Test
+	void testSnapshotShortestPath() {
+		CompactGraph snapshot = graph.snapshot();
+
+		assertEquals(7, snapshot.size());
+		assertEquals(graph.shortestPath(a, g), snapshot.shortestPath(a, g));
+		assertEquals(11, snapshot.distance(a, g));
+		assertSame(snapshot, graph.snapshot());
+
+		graph.removeEdge(e, g, 7, "EG");
+		assertNotSame(snapshot, graph.snapshot());
+		assertEquals(12, graph.snapshot().distance(a, g));
+	}
+
+	@Test
+	void testShortestPathCache() {
+		ShortestPathCache cache = graph.getPathCache();
+
+		graph.shortestPath(a, g);
+		graph.shortestPath(a, f);
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		// Changing a weight repairs the cached tree in place
+		graph.getEdge(e, g).setWeight(1);
+		assertEquals(1, cache.size());
+		assertEquals("e via EG to g 1 mi", graph.shortestPath(a, g).get(2));
+	}
+
+	@Test
+	void testAStarShortestPath() {
+		DistanceHeuristic landmarks = new LandmarkHeuristic(graph, 2);
+		assertEquals(2, ((LandmarkHeuristic) landmarks).getLandmarks().size());
+		assertEquals(graph.shortestPath(a, g), graph.shortestPath(a, g, landmarks));
+		assertEquals(graph.shortestPath(g, b), graph.shortestPath(g, b, landmarks));
+
+		Town x = new Town("x", 0, 0);
+		Town y = new Town("y", 3, 4);
+		assertEquals(5, new EuclideanHeuristic(1).estimate(x, y));
+		assertEquals(0, new EuclideanHeuristic(1).estimate(x, a));
+	}
+
+	@Test
+	void testBidirectionalPath() {
+		assertEquals(graph.shortestPath(a, g), graph.bidirectionalShortestPath(a, g));
+		assertEquals(0, graph.bidirectionalShortestPath(c, c).size());
+
+		graphManager.setRoutingMode(RoutingMode.BIDIRECTIONAL);
+		assertEquals("e via CE to c 1 mi", graphManager.getPath("e", "b").get(0));
+		assertEquals("c via BC to b 1 mi", graphManager.getPath("e", "b").get(1));
+	}
+
+	@Test
+	void testContractionHierarchyPath() {
+		ContractionHierarchy hierarchy = new ContractionHierarchy(graph.snapshot());
+		assertEquals(graph.shortestPath(a, g), hierarchy.shortestPath(a, g));
+		assertEquals(graph.shortestPath(g, b), hierarchy.shortestPath(g, b));
+		assertEquals(11, hierarchy.distance(a, g));
+
+		graphManager.setRoutingMode(RoutingMode.CONTRACTION_HIERARCHIES);
+		assertEquals("e via CE to c 1 mi", graphManager.getPath("e", "b").get(0));
+		assertSame(graphManager.prepareContractionHierarchy(), graphManager.prepareContractionHierarchy());
+	}
+
+	@Test
+	void testDistanceMatrix() {
+		DistanceMatrix matrix = graphManager.getDistanceMatrix(
+				List.of("a", "e"), List.of("a", "g", "h"), true);
+
+		assertEquals(0, matrix.getDistance(0, 0));
+		assertEquals(4, matrix.getDistance(1, 1));
+		assertEquals(CompactGraph.UNREACHABLE, matrix.getDistance(0, 2));
+		assertEquals("e via EG to g 4 mi", matrix.getPath(1, 1).get(0));
+		assertEquals("e", graphManager.getSnapshot().getTown(matrix.getPredecessor(1, 1)).getName());
+
+		DistanceMatrix distancesOnly = graphManager.getDistanceMatrix(List.of("a"), List.of("g"), false);
+		assertEquals(8, distancesOnly.getDistance(0, 0));
+		assertThrows(IllegalStateException.class, () -> distancesOnly.getPredecessor(0, 0));
+	}
+
+	@Test
+	void testAllPairsShortestPaths() {
+		AllPairsShortestPaths dijkstra = new AllPairsShortestPaths(graph.snapshot(), AllPairsShortestPaths.Method.DIJKSTRA);
+		AllPairsShortestPaths floyd = new AllPairsShortestPaths(graph.snapshot(), AllPairsShortestPaths.Method.FLOYD_WARSHALL);
+
+		assertEquals(11, dijkstra.distance(a, g));
+		assertEquals(11, floyd.distance(g, a));
+		assertEquals(graph.shortestPath(a, g), floyd.shortestPath(a, g));
+		assertEquals(graph.shortestPath(g, b), dijkstra.shortestPath(g, b));
+		assertEquals(2 * 7 * 7 * 2, dijkstra.getMemoryBytes());
+
+		assertEquals(8, graphManager.getDistance("a", "g"));
+
+		// Distances too long for chars are searched again into ints by both methods
+		graph.addVertex(new Town("h"));
+		graph.addEdge(g, new Town("h"), 70_000, "GH");
+		AllPairsShortestPaths wide = new AllPairsShortestPaths(graph.snapshot(), AllPairsShortestPaths.Method.DIJKSTRA);
+		assertEquals(70_011, wide.distance(a, new Town("h")));
+		assertEquals(70_011, new AllPairsShortestPaths(graph.snapshot(), AllPairsShortestPaths.Method.FLOYD_WARSHALL).distance(new Town("h"), a));
+		assertEquals(graph.shortestPath(new Town("h"), b), wide.shortestPath(new Town("h"), b));
+		assertEquals(2 * 8 * 8 + 4 * 8 * 8, wide.getMemoryBytes());
+
+		// Maps above the limit are answered by a search rather than by matrices
+		for(int i = 0; i < AllPairsShortestPaths.MAX_TOWNS; i++)
+			graphManager.addTown("town " + i);
+		graphManager.addRoad("a", "town 0", 1, "A0");
+		assertEquals(9, graphManager.getDistance("g", "town 0"));
+		graphManager.setRoutingMode(RoutingMode.ALL_PAIRS);
+		assertEquals(2, graphManager.getPath("town 0", "c").size());
+	}
+
+	@Test
+	void testImportRoads() throws Exception {
+		Path roads = Files.createTempFile("roads", ".txt");
+		Path arcs = Files.createTempFile("roads", ".gr");
+		try {
+			Files.writeString(roads, "Main St,3;x;y\r\nOak, Ave,4;y;z\n");
+			assertEquals(2, graphManager.importRoads(roads));
+			assertEquals("Oak, Ave", graphManager.getRoad("y", "z"));
+			assertEquals(7, graphManager.getDistance("x", "z"));
+
+			Files.writeString(arcs, "c sample\np sp 3 2\na 1 2 5\na 2 3 6\n");
+			TownGraphManager dimacs = new TownGraphManager();
+			assertEquals(2, dimacs.importRoads(arcs));
+			assertEquals("2-3", dimacs.getRoad("3", "2"));
+
+			Files.writeString(roads, "Main St;x;y\n");
+			assertThrows(IllegalArgumentException.class, () -> graphManager.importRoads(roads));
+			Files.writeString(roads, "Long Rd,2147483648;x;y\n");
+			assertThrows(IllegalArgumentException.class, () -> graphManager.importRoads(roads));
+			Files.writeString(arcs, "a 1 2 99999999999\n");
+			assertThrows(IllegalArgumentException.class, () -> dimacs.importRoads(arcs));
+
+			// A malformed line in a later chunk stops the load before any road is added
+			Files.writeString(roads, "A,1;p;q\nB,2;q;r\nC,3;r;s\nD;s;t\n");
+			RoadNetworkLoader loader = new RoadNetworkLoader(RoadNetworkLoader.Format.ROAD_LIST, 8);
+			List<RoadBatch> consumed = new ArrayList<>();
+			assertThrows(IllegalArgumentException.class, () -> loader.load(roads, consumed::add));
+			assertTrue(consumed.isEmpty());
+			Files.writeString(roads, "A,1;p;q\nB,2;q;r\nC,3;r;s\n");
+			assertEquals(3, loader.load(roads, consumed::add));
+			assertEquals(3, consumed.stream().mapToInt(RoadBatch::size).sum());
+		} finally {
+			Files.delete(roads);
+			Files.delete(arcs);
+		}
+	}
+
+	@Test
+	void testSnapshotFile() throws Exception {
+		Path file = Files.createTempFile("graph", ".snap");
+		try {
+			graphManager.addTown("h", 1.5, 2.5);
+			graphManager.saveSnapshot(file);
+
+			TownGraphManager loaded = new TownGraphManager();
+			assertEquals(8, loaded.loadSnapshot(file));
+			assertEquals(graphManager.getPath("a", "g"), loaded.getPath("a", "g"));
+			assertEquals(graphManager.allRoads(), loaded.allRoads());
+			assertEquals(2.5, loaded.getTown("h").getY());
+			assertThrows(IllegalStateException.class, () -> loaded.loadSnapshot(file));
+
+			// Queries are served from the snapshot; its towns join the graph on the first change
+			assertTrue(loaded.isConnected("a", "g") && loaded.containsTown("h"));
+			assertFalse(loaded.isConnected("a", "h"));
+			assertNull(loaded.getPath("a", "h"));
+			assertEquals(graphManager.getDistance("a", "g"), loaded.getDistance("a", "g"));
+			assertEquals(-1, loaded.getTown("a").getId());
+			assertTrue(loaded.addTown("i"));
+			assertTrue(loaded.getTown("a").getId() >= 0);
+			assertEquals(graphManager.getPath("a", "g"), loaded.getPath("a", "g"));
+			assertEquals(graphManager.allRoads(), loaded.allRoads());
+
+			// Snapshots larger than the I/O buffer are streamed in pieces
+			Graph large = new Graph();
+			new RoadNetworkGenerator(RoadNetworkGenerator.Topology.RANDOM_GEOMETRIC, 40_000, 5).addTo(large);
+			large.snapshot().save(file);
+			assertTrue(Files.size(file) > 2 << 20);
+			CompactGraph read = CompactGraph.load(file);
+			assertEquals(large.snapshot().roadCount(), read.roadCount());
+			assertEquals(large.snapshot().distance(large.getTown(0), large.getTown(39_999)), read.distance(large.getTown(0), large.getTown(39_999)));
+			assertEquals(large.snapshot().getTown(123), read.getTown(123));
+
+			// Connectivity comes from a union-find of the snapshot's roads, built once
+			for(int id = 0; id < 40_000; id += 997)
+				assertEquals(large.connected(large.getTown(0), large.getTown(id)), read.connected(large.getTown(0), large.getTown(id)));
+			assertEquals(large.getComponentCount(), read.components().getComponentCount());
+			assertSame(read.components(), read.components());
+			Graph restored = new Graph();
+			restored.restore(read);
+			assertEquals(40_000, restored.getTownCount());
+			assertEquals(large.getTownCount(), restored.vertexSet().size());
+
+			// Flip one byte of the file
+			byte[] bytes = Files.readAllBytes(file);
+			bytes[40] ^= 1;
+			Files.write(file, bytes);
+			assertThrows(IllegalArgumentException.class, () -> CompactGraph.load(file));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void testGeneratedNetworkCrossCheck() {
+		for(RoadNetworkGenerator.Topology topology: RoadNetworkGenerator.Topology.values()) {
+			RoadNetworkGenerator generator = new RoadNetworkGenerator(topology, 400, 11);
+			Graph generated = new Graph();
+			long roads = generator.addTo(generated);
+
+			assertEquals(400, generated.vertexSet().size());
+			assertTrue(generated.edgeSet().size() > 400 && generated.edgeSet().size() <= roads);
+			assertEquals(List.of(), new RoutingCrossCheck(generated).check(50, 5));
+		}
+
+		// The same seed gives the same network
+		RoadNetworkGenerator generator = new RoadNetworkGenerator(RoadNetworkGenerator.Topology.RANDOM_GEOMETRIC, 100, 3);
+		assertEquals(generator.getX(42), new RoadNetworkGenerator(RoadNetworkGenerator.Topology.RANDOM_GEOMETRIC, 100, 3).getX(42));
+		assertTrue(new RoutingCrossCheck(graph).check(20, 1).isEmpty());
+	}
+
+	@Test
+	void testMetrics() throws Exception {
+		GraphMetrics metrics = graphManager.getMetrics();
+		graphManager.getPath("a", "g");
+		assertEquals(0, metrics.getSearches());
+
+		List<GraphMetrics.Operation> seen = new ArrayList<>();
+		metrics.addListener((operation, nanos, settled, relaxed) -> seen.add(operation));
+		metrics.setEnabled(true);
+		graphManager.getPath("b", "g");
+		graphManager.addRoad("a", "g", 20, "AG");
+
+		assertEquals(List.of(GraphMetrics.Operation.DIJKSTRA, GraphMetrics.Operation.GET_PATH,
+				GraphMetrics.Operation.ADD_ROAD), seen);
+		assertEquals(1, metrics.getSearches());
+		assertEquals(7, metrics.getSettledTowns());
+		assertEquals(1, (long) metrics.getOperationCounts().get("GET_PATH"));
+		assertEquals(7, metrics.getTownCount());
+
+		metrics.register("test");
+		ObjectName name = new ObjectName("TownGraph:type=GraphMetrics,name=\"test\"");
+		assertEquals(7, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "TownCount"));
+		metrics.unregister();
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(int i = 1; i <= 1000; i++)
+			histogram.record(i * 1000);
+		assertEquals(500_000, histogram.getPercentile(50), 500_000 * 0.04);
+		assertEquals(990_000, histogram.getPercentile(99), 990_000 * 0.04);
+		assertEquals(1_000_000, histogram.getMax());
+	}
+
+	@Test
+	void testRoute() {
+		Route route = graphManager.getRoute("a", "g");
+		assertEquals(8, route.getDistance());
+		assertEquals(graphManager.getPath("a", "g"), route.toStrings());
+		assertEquals("a", route.getSource().getName());
+		assertEquals("g", route.getTown(route.size()).getName());
+
+		int hops = 0;
+		for(Route.Hop hop: route) {
+			assertEquals(route.getTownId(hops), hop.getFromId());
+			assertEquals(route.formatHop(hops++), hop.toString());
+		}
+		assertEquals(route.size(), hops);
+		assertNull(graphManager.getRoute("a", "h"));
+
+		graphManager.setRoutingMode(RoutingMode.CONTRACTION_HIERARCHIES);
+		assertEquals(8, graphManager.getRoute("a", "g").getDistance());
+		graphManager.setRoutingMode(RoutingMode.ALL_PAIRS);
+		assertEquals(graphManager.getPath("g", "a"), graphManager.getRoute("g", "a").toStrings());
+		assertEquals(0, graphManager.getRoute("b", "b").size());
+	}
+
+	@Test
+	void testSetEdgeWeightRepairsCachedTrees() {
+		graph.shortestPath(a, g);
+		assertEquals(11, graph.snapshot().distance(a, g));
+
+		// Lengthen a road on the cached tree, then shorten one off it
+		assertNotNull(graph.setEdgeWeight(e, c, 10));
+		assertEquals(1, graph.getPathCache().size());
+		assertEquals(graph.computeShortestPaths(a).getCost(g), graph.getPathCache().get(a).getCost(g));
+		assertEquals(13, graph.snapshot().distance(a, g));
+
+		graph.getEdge(a, b).setWeight(1);
+		ShortestPathTree repaired = graph.getPathCache().get(a);
+		ShortestPathTree fresh = graph.computeShortestPaths(a);
+		for(Town t: List.of(a, b, c, d, e, f, g))
+			assertEquals(fresh.getCost(t), repaired.getCost(t));
+		assertEquals(10, repaired.getCost(g));
+		assertEquals(graph.snapshot().shortestPath(a, g), graph.shortestPath(a, g));
+		assertNull(graph.setEdgeWeight(a, g, 1));
+	}
+
+	@Test
+	void testTownsWithin() {
+		Map<String, Integer> within = graphManager.getTownsWithin("a", 4);
+		assertEquals(List.of("a", "b", "c"), new ArrayList<>(within.keySet()).subList(0, 3));
+		assertEquals(5, within.size());
+		assertEquals(4, (int) within.get("e"));
+		assertFalse(within.containsKey("f"));
+		assertTrue(graphManager.getTownsWithin("zzz", 4).isEmpty());
+
+		Map<Town, Integer> ball = graph.townsWithin(a, 9);
+		assertEquals(Set.of(a, b, c, d, e), ball.keySet());
+		assertEquals(4, (int) ball.get(e));
+
+		// Stopping at a target only keeps settled towns
+		ShortestPathTree tree = graph.computeShortestPaths(a, c, Integer.MAX_VALUE);
+		assertEquals(3, tree.getCost(c));
+		assertFalse(tree.reaches(g));
+	}
+
+	@Test
+	void testAlternativeRoutes() {
+		List<Route> routes = graphManager.getAlternativeRoutes("a", "g", 5);
+		assertEquals(5, routes.size());
+
+		// Four routes tie at 8 miles before the first detour
+		int[] distances = routes.stream().mapToInt(Route::getDistance).toArray();
+		assertArrayEquals(new int[] {8, 8, 8, 8, 10}, distances);
+		assertEquals(5, routes.stream().map(Route::toStrings).distinct().count());
+		assertEquals(routes.get(3).getDestination(), graphManager.getTown("g"));
+		assertEquals(List.of("a via AB to b 2 mi", "b via BE to e 4 mi", "e via EG to g 4 mi"),
+				routes.get(4).toStrings());
+
+		assertTrue(graphManager.getAlternativeRoutes("a", "zzz", 5).isEmpty());
+		assertEquals(1, graph.kShortestPaths(a, b, 1).size());
+	}
+
+	@Test
+	void testTownIds() {
+		// Every town has a distinct id below the number of towns
+		Set<Integer> ids = new HashSet<>();
+		for(Town t: graph.vertexSet()) {
+			assertTrue(t.getId() >= 0 && t.getId() < graph.vertexSet().size());
+			assertTrue(ids.add(t.getId()));
+			assertSame(t, graph.getTown(t.getId()));
+		}
+
+		// A removed town's id goes to the next town added
+		int id = c.getId();
+		assertTrue(graph.removeVertex(new Town("c")));
+		assertEquals(-1, c.getId());
+		Town h = new Town("h");
+		graph.addVertex(h);
+		assertEquals(id, h.getId());
+
+		assertFalse(a.equals(null));
+		assertEquals(a, new Town("a"));
+		assertEquals(4, graph.computeShortestPaths(a).getCost(new Town("b")));
+		assertTrue(graph.getEdge(a, b).contains(new Town("b")));
+	}
+
+	@Test
+	void testComponents() {
+		assertEquals(List.of(7), graphManager.getComponentSizes());
+
+		// An island town is answered without a search
+		graphManager.addTown("h");
+		graphManager.addTown("i");
+		graphManager.addRoad("h", "i", 3, "HI");
+		assertFalse(graphManager.isConnected("a", "h"));
+		assertNull(graphManager.getPath("a", "h"));
+		assertNull(graphManager.getRoute("a", "i"));
+		assertEquals(List.of(7, 2), graphManager.getComponentSizes());
+
+		// Joining and then cutting the island rebuilds the index
+		graphManager.addRoad("g", "h", 1, "GH");
+		assertTrue(graphManager.isConnected("a", "i"));
+		assertEquals(List.of(9), graphManager.getComponentSizes());
+		graphManager.deleteRoadConnection("g", "h", "GH");
+		assertFalse(graphManager.isConnected("a", "i"));
+		graphManager.deleteTown("i");
+		assertEquals(List.of(7, 1), graphManager.getComponentSizes());
+
+		assertEquals(1, graph.getComponentCount());
+		assertEquals(7, graph.componentSize(a));
+	}
+
+	@Test
+	void testMinimumSpanningForest() {
+		// CE 1, BD 2, FG 2, AC 3, DE 3 and DF 5, the duplicate FD road having been refused
+		SpanningForest forest = graph.minimumSpanningForest();
+		assertEquals(6, forest.size());
+		assertEquals(1, forest.getTreeCount());
+		assertEquals(16, forest.getTotalWeight());
+		assertEquals(Set.of("CE", "BD", "FG", "AC", "DE", "DF"), new HashSet<>(forest.getRoadNames()));
+
+		// Both algorithms rank equal weights by road id, so they pick the same roads
+		CompactGraph snapshot = graph.snapshot();
+		assertArrayEquals(SpanningForest.kruskal(snapshot).getRoadIds(), SpanningForest.boruvka(snapshot).getRoadIds());
+
+		// An island town adds a tree of its own
+		graphManager.addTown("h");
+		SpanningForest managerForest = graphManager.getMinimumSpanningForest();
+		assertEquals(2, managerForest.getTreeCount());
+		assertEquals(6, managerForest.size());
+	}
+
+	@Test
+	void testPartitionedRouting() throws Exception {
+		// Every town is put in one of the regions, and the regions are balanced
+		int[] region = GraphPartitioner.partition(graph.snapshot(), 3);
+		int[] sizes = new int[3];
+		for(int r: region)
+			sizes[r]++;
+		assertEquals(7, sizes[0] + sizes[1] + sizes[2]);
+		assertTrue(Arrays.stream(sizes).allMatch(size -> size >= 1 && size <= 3));
+
+		// Worker threads on a generated network agree with searches of the whole graph
+		PartitionHarness.Result result = new PartitionHarness(600, 7).run(4, false, 40, 3);
+		assertEquals(List.of(), result.getMismatches());
+		assertTrue(result.getSummary().startsWith("600 towns, "));
+
+		graphManager.setPartitioning(2, false);
+		graphManager.setRoutingMode(RoutingMode.PARTITIONED);
+		List<String> path = graphManager.getPath("a", "g");
+		assertTrue(path.get(0).startsWith("a via ") && path.get(path.size() - 1).contains(" to g "));
+		assertEquals(8, path.stream().mapToInt(hop -> Integer.parseInt(hop.split(" ")[hop.split(" ").length - 2])).sum());
+		assertSame(graphManager.preparePartitions(), graphManager.preparePartitions());
+
+		// A change to the graph partitions it again
+		PartitionedGraph partitions = graphManager.preparePartitions();
+		graphManager.addRoad("a", "g", 1, "AG");
+		assertEquals(List.of("a via AG to g 1 mi"), graphManager.getPath("a", "g"));
+		assertNotSame(partitions, graphManager.preparePartitions());
+
+		// Workers held for a query keep running when the partitions are closed, until released
+		PartitionedGraph held = graphManager.preparePartitions();
+		assertTrue(held.acquire());
+		graphManager.closePartitions();
+		assertTrue(held.isClosed());
+		assertEquals(List.of("a via AG to g 1 mi"), held.shortestPath(a, g));
+		held.release();
+		assertFalse(held.acquire());
+		assertThrows(IllegalStateException.class, () -> held.shortestPath(a, g));
+		assertEquals(List.of("a via AG to g 1 mi"), graphManager.getPath("a", "g"));
+
+		// A dead worker is reported as an error rather than a missing path, and the next
+		// query starts new workers
+		PartitionedGraph broken = graphManager.preparePartitions();
+		broken.killWorker(broken.regionOf(a));
+		assertThrows(UncheckedIOException.class, () -> graphManager.getPath("a", "g"));
+		assertTrue(broken.isClosed());
+		assertEquals(List.of("a via AG to g 1 mi"), graphManager.getPath("a", "g"));
+		assertNotSame(broken, graphManager.preparePartitions());
+		graphManager.closePartitions();
+	}
+
+	@Test
+	void testOffHeapGraph() throws Exception {
+		Path directory = Files.createTempDirectory("offheap");
+		try(OffHeapGraph direct = new OffHeapGraph(); OffHeapGraph mapped = new OffHeapGraph(directory)) {
+			for(OffHeapGraph offHeap: List.of(direct, mapped)) {
+				for(Town town: graph.vertexSet())
+					assertTrue(offHeap.addVertex(new Town(town)));
+				for(Road road: graph.edgeSet())
+					offHeap.addEdge(road.getSource(), road.getDestination(), road.getWeight(), road.getName());
+
+				// The FD road was refused by both graphs, as a duplicate of DF
+				assertEquals(graph.vertexSet(), new HashSet<>(offHeap.vertexSet()));
+				assertEquals(graph.edgeSet(), new HashSet<>(offHeap.edgeSet()));
+				assertEquals(graph.edgesOf(d), offHeap.edgesOf(new Town("d")));
+				assertFalse(offHeap.addVertex(new Town("a")));
+				assertNull(offHeap.addEdge(a, b, 1, "AB"));
+
+				assertEquals(graph.shortestPath(a, g), offHeap.shortestPath(a, g));
+				offHeap.dijkstraShortestPath(g);
+				assertEquals(graph.shortestPath(g, b), offHeap.shortestPath(g, b));
+
+				// Flyweights are created on access and read the current records
+				assertEquals(5, offHeap.setEdgeWeight(a, c, 5).getWeight());
+				assertEquals(5, offHeap.getEdge(c, a).getWeight());
+				Town removed = offHeap.vertexSet().stream().filter(e::equals).findFirst().get();
+				assertTrue(offHeap.removeVertex(e));
+				assertFalse(offHeap.containsEdge(c, e));
+				assertEquals(6, offHeap.vertexSet().size());
+				assertThrows(IllegalArgumentException.class, () -> offHeap.shortestPath(a, e));
+
+				// The removed town's id is handed out again
+				assertTrue(offHeap.addVertex(new Town("h")));
+				assertEquals("h", offHeap.getTown(removed.getId()).getName());
+			}
+		} finally {
+			// Delete the mapped graph's files
+			try(DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+				for(Path file: files)
+					Files.delete(file);
+			}
+			Files.delete(directory);
+		}
+
+		// A closed graph refuses every operation, and closing it again does nothing
+		OffHeapGraph closed = new OffHeapGraph();
+		closed.addVertex(new Town("a"));
+		Set<Town> towns = closed.vertexSet();
+		closed.close();
+		assertThrows(IllegalStateException.class, () -> towns.size());
+		assertThrows(IllegalStateException.class, () -> closed.containsVertex(a));
+		assertThrows(IllegalStateException.class, () -> closed.addVertex(new Town("i")));
+		assertThrows(IllegalStateException.class, () -> closed.shortestPath(a, g));
+		closed.close();
+	}
+
+	@Test
+	void testSnapshotSearchWorkspace() {
+		// Searches on a snapshot reuse this thread's workspace rather than allocating their own
+		CompactGraph snapshot = graph.snapshot();
+		assertEquals(graph.shortestPath(a, g), snapshot.shortestPath(a, g));
+		SearchWorkspace workspace = snapshot.workspace();
+		assertEquals(graph.snapshot().distance(a, f), snapshot.distance(a, f));
+		snapshot.route(b, e);
+		snapshot.townsWithin(c, 10);
+		snapshot.distancesFrom(d);
+		assertSame(workspace, snapshot.workspace());
+
+		// So queries on a large map allocate no per-town arrays
+		Graph large = new Graph();
+		new RoadNetworkGenerator(RoadNetworkGenerator.Topology.GRID, 40_000, 3).addTo(large);
+		CompactGraph grid = large.snapshot();
+		Town from = grid.getTown(0);
+		Town to = grid.getTown(grid.target(grid.firstSlot(0)));
+		assertNotNull(grid.route(from, to));
+
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long allocated = threads.getCurrentThreadAllocatedBytes();
+		for(int i = 0; i < 100; i++) {
+			grid.distance(from, to);
+			grid.route(from, to);
+		}
+		assertTrue(threads.getCurrentThreadAllocatedBytes() - allocated < 1 << 20);
+	}
+
+
+	@Test
+	void testTownInTwoGraphs() {
+		// A town added to a second graph keeps its id, roads and components in the first
+		Town x = new Town("x");
+		Town y = new Town("y");
+		Graph first = new Graph();
+		first.addVertex(x);
+		first.addVertex(y);
+		first.addEdge(x, y, 3, "XY");
+
+		Graph second = new Graph();
+		second.addVertex(new Town("w"));
+		second.addVertex(y);
+		second.addVertex(x);
+		assertTrue(first.containsEdge(x, y));
+		assertTrue(first.connected(x, y));
+		assertEquals(1, first.getComponentCount());
+		assertEquals(List.of("x via XY to y 3 mi"), first.shortestPath(x, y));
+		assertFalse(second.connected(x, y));
+
+		// Removing a road rebuilds the components from the first graph's own ids
+		first.addVertex(new Town("z"));
+		first.addEdge(y, new Town("z"), 4, "YZ");
+		first.removeEdge(x, y, 3, "XY");
+		assertFalse(first.connected(x, y));
+		assertTrue(first.connected(y, new Town("z")));
+		assertEquals(2, first.componentSize(y));
+
+		// And removing the town from one graph leaves it in the other
+		assertTrue(second.removeVertex(x));
+		assertSame(x, first.getTown(first.idOf(x)));
+		assertEquals(List.of("y via YZ to z 4 mi"), first.shortestPath(y, new Town("z")));
+	}
 }
 
 
@@ -0,0 +1,115 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import benchmarks.GraphOperations;
+
+/**
+ * This is a class that runs the Graph operations of GraphBenchmark on a grid road network,
+ * naming towns and roads by their number in the order they were built.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class GraphBenchmarkOperations implements GraphOperations {
+
+	private Graph graph;
+	private Town[] vertices;
+	private List<Road> roads;
+
+	@Override
+	public void build(int towns, long seed) {
+		vertices = new Town[towns];
+		roads = new ArrayList<>();
+		graph = grid(towns, seed, vertices, roads);
+	}
+
+	/**
+	 * Builds a square grid of towns named "T0", "T1", ... with a road of 1 to 100 miles
+	 * between horizontal and vertical neighbors
+	 * @param towns number of towns
+	 * @param seed seed of the road lengths
+	 * @param vertices filled with the towns, indexed by number
+	 * @param roads filled with the roads
+	 * @return the graph
+	 */
+	static Graph grid(int towns, long seed, Town[] vertices, List<Road> roads) {
+		Graph graph = new Graph();
+		Random random = new Random(seed);
+		int side = (int) Math.ceil(Math.sqrt(towns));
+
+		for(int i = 0; i < towns; i++) {
+			vertices[i] = new Town("T" + i);
+			graph.addVertex(vertices[i]);
+		}
+
+		for(int i = 0; i < towns; i++) {
+			if((i + 1) % side != 0 && i + 1 < towns)
+				roads.add(graph.addEdge(vertices[i], vertices[i + 1], 1 + random.nextInt(100), "R" + i + "E"));
+			if(i + side < towns)
+				roads.add(graph.addEdge(vertices[i], vertices[i + side], 1 + random.nextInt(100), "R" + i + "S"));
+		}
+		return graph;
+	}
+
+	@Override
+	public int roadCount() {
+		return roads.size();
+	}
+
+	@Override
+	public Object getEdge(int r) {
+		Road road = roads.get(r);
+		return graph.getEdge(road.getSource(), road.getDestination());
+	}
+
+	@Override
+	public boolean containsEdge(int r) {
+		Road road = roads.get(r);
+		return graph.containsEdge(road.getDestination(), road.getSource());
+	}
+
+	@Override
+	public boolean containsEdge(int town1, int town2) {
+		return graph.containsEdge(vertices[town1], vertices[town2]);
+	}
+
+	@Override
+	public Object edgesOf(int town) {
+		return graph.edgesOf(vertices[town]);
+	}
+
+	@Override
+	public void dijkstraShortestPath(int town) {
+		graph.dijkstraShortestPath(vertices[town]);
+	}
+
+	@Override
+	public Object addEdge(int town1, int town2) {
+		return graph.addEdge(vertices[town1], vertices[town2], 7, "Bench");
+	}
+
+	@Override
+	public void removeEdge(int town1, int town2) {
+		graph.removeEdge(vertices[town1], vertices[town2], 7, "Bench");
+	}
+
+	@Override
+	public List<?> edgesCopy(int town) {
+		return new ArrayList<>(graph.edgesOf(vertices[town]));
+	}
+
+	@Override
+	public boolean removeVertex(int town) {
+		return graph.removeVertex(vertices[town]);
+	}
+
+	@Override
+	public void restoreVertex(int town, List<?> edges) {
+		if(graph.addVertex(vertices[town])) {
+			for(Object edge: edges) {
+				Road r = (Road) edge;
+				graph.addEdge(r.getSource(), r.getDestination(), r.getWeight(), r.getName());
+			}
+		}
+	}
+}
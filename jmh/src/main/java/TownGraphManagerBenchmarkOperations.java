@@ -0,0 +1,48 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import benchmarks.TownGraphManagerOperations;
+
+/**
+ * This is a class that runs the TownGraphManager queries of TownGraphManagerBenchmark on
+ * the grid road network of GraphBenchmarkOperations.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class TownGraphManagerBenchmarkOperations implements TownGraphManagerOperations {
+
+	private TownGraphManager manager;
+	private String[] names;
+
+	@Override
+	public void build(int towns, long seed) {
+		Town[] vertices = new Town[towns];
+		List<Road> roads = new ArrayList<>();
+		GraphBenchmarkOperations.grid(towns, seed, vertices, roads);
+
+		manager = new TownGraphManager();
+		RoadBatch batch = new RoadBatch(roads.size());
+		for(Road r: roads)
+			batch.add(r.getName(), r.getSource().getName(), r.getDestination().getName(), r.getWeight());
+		manager.addRoads(batch);
+
+		names = new String[towns];
+		for(int i = 0; i < towns; i++)
+			names[i] = vertices[i].getName();
+	}
+
+	@Override
+	public Object getPath(int town1, int town2) {
+		return manager.getPath(names[town1], names[town2]);
+	}
+
+	@Override
+	public Object getTown(int town) {
+		return manager.getTown(names[town]);
+	}
+
+	@Override
+	public Object allRoads() {
+		return manager.allRoads();
+	}
+}
@@ -0,0 +1,32 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This is a class that runs the JMH benchmarks with the GC profiler, so allocation rates
+ * are reported next to throughput and latency. Command line arguments are passed to JMH,
+ * e.g. "GraphBenchmark.getEdge -p towns=1000" to run one benchmark on one graph size.
+ * Run it with "java -jar target/benchmarks.jar" after "mvn package" in the jmh directory.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class);
+
+		// Without arguments, run every benchmark
+		if(args.length == 0)
+			options.include(".*Benchmark.*");
+
+		new Runner(options.build()).run();
+	}
+}
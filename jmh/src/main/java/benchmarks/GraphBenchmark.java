@@ -0,0 +1,139 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This is a class that holds the JMH benchmarks of the Graph operations, run on square
+ * grid road networks of 1k to 1M towns. Throughput and sampled latency are reported for
+ * every operation; run through BenchmarkRunner to add the allocation rate.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class GraphBenchmark {
+
+	/**
+	 * The road network shared by the benchmarks
+	 */
+	@State(Scope.Benchmark)
+	public static class Network {
+
+		@Param({"1000", "10000", "100000", "1000000"})
+		public int towns;
+
+		GraphOperations graph;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			graph = Operations.create(GraphOperations.class, "GraphBenchmarkOperations");
+			graph.build(towns, 42);
+		}
+
+		// Returns a random town
+		int randomTown() {
+			return ThreadLocalRandom.current().nextInt(towns);
+		}
+
+		// Returns a random road
+		int randomRoad() {
+			return ThreadLocalRandom.current().nextInt(graph.roadCount());
+		}
+	}
+
+	/**
+	 * A road added by the addEdge benchmark and removed again after it. Level.Invocation
+	 * fixtures cost about a microsecond, which is small next to a change of the graph.
+	 */
+	@State(Scope.Thread)
+	public static class NewRoad {
+		int from;
+		int to;
+
+		// Two towns two apart, which are never neighbors
+		@Setup(Level.Invocation)
+		public void pick(Network network) {
+			from = ThreadLocalRandom.current().nextInt(network.towns - 2);
+			to = from + 2;
+		}
+
+		@TearDown(Level.Invocation)
+		public void remove(Network network) {
+			network.graph.removeEdge(from, to);
+		}
+	}
+
+	/**
+	 * A town removed by the removeVertex benchmark and put back with its roads after it
+	 */
+	@State(Scope.Thread)
+	public static class RemovedTown {
+		int town;
+		List<?> roads;
+
+		@Setup(Level.Invocation)
+		public void pick(Network network) {
+			town = network.randomTown();
+			roads = network.graph.edgesCopy(town);
+		}
+
+		@TearDown(Level.Invocation)
+		public void restore(Network network) {
+			network.graph.restoreVertex(town, roads);
+		}
+	}
+
+	@Benchmark
+	public Object getEdge(Network network) {
+		return network.graph.getEdge(network.randomRoad());
+	}
+
+	// Half of the pairs are neighbors, half are random towns
+	@Benchmark
+	public boolean containsEdge(Network network) {
+		if(ThreadLocalRandom.current().nextBoolean())
+			return network.graph.containsEdge(network.randomRoad());
+		return network.graph.containsEdge(network.randomTown(), network.randomTown());
+	}
+
+	@Benchmark
+	public Object edgesOf(Network network) {
+		return network.graph.edgesOf(network.randomTown());
+	}
+
+	@Benchmark
+	public int dijkstraShortestPath(Network network) {
+		int source = network.randomTown();
+		network.graph.dijkstraShortestPath(source);
+		return source;
+	}
+
+	@Benchmark
+	public Object addEdge(Network network, NewRoad road) {
+		return network.graph.addEdge(road.from, road.to);
+	}
+
+	@Benchmark
+	public boolean removeVertex(Network network, RemovedTown removed) {
+		return network.graph.removeVertex(removed.town);
+	}
+}
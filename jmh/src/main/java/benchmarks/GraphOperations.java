@@ -0,0 +1,52 @@
+package benchmarks;
+
+import java.util.List;
+
+/**
+ * This is an interface for the Graph operations measured by GraphBenchmark. JMH only
+ * generates benchmarks in a named package, which cannot import the default-package Graph,
+ * so the operations are implemented by GraphBenchmarkOperations in the default package and
+ * named here by town and road number.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public interface GraphOperations {
+
+	/**
+	 * Builds a square grid of towns named "T0", "T1", ... with a road of 1 to 100 miles
+	 * between horizontal and vertical neighbors
+	 * @param towns number of towns
+	 * @param seed seed of the road lengths
+	 */
+	void build(int towns, long seed);
+
+	// Returns the number of roads of the grid
+	int roadCount();
+
+	// Looks up road r from its source to its destination
+	Object getEdge(int r);
+
+	// Checks for road r from its destination to its source
+	boolean containsEdge(int r);
+
+	// Checks for a road between two towns
+	boolean containsEdge(int town1, int town2);
+
+	Object edgesOf(int town);
+
+	void dijkstraShortestPath(int town);
+
+	// Adds a road of 7 miles named "Bench" between two towns
+	Object addEdge(int town1, int town2);
+
+	// Removes the road added by addEdge
+	void removeEdge(int town1, int town2);
+
+	// Returns a copy of the roads of a town, for restoreVertex
+	List<?> edgesCopy(int town);
+
+	boolean removeVertex(int town);
+
+	// Puts a removed town back with the roads copied before its removal
+	void restoreVertex(int town, List<?> roads);
+}
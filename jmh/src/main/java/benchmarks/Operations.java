@@ -0,0 +1,31 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * This is a class that creates the default-package implementations of the benchmark
+ * operations, which a named package can only reach by name
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+final class Operations {
+
+	private Operations() {
+	}
+
+	/**
+	 * Creates an instance of a class through its public no-argument constructor
+	 * @param type the interface the class implements
+	 * @param className binary name of the class
+	 * @return the new instance
+	 * @throws IllegalStateException if the class is missing or cannot be created
+	 */
+	static <T> T create(Class<T> type, String className) {
+		try {
+			return type.cast(Class.forName(className).getConstructor().newInstance());
+		} catch(ClassNotFoundException | NoSuchMethodException | InstantiationException
+				| IllegalAccessException | InvocationTargetException e) {
+			throw new IllegalStateException("cannot create " + className, e);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This is a class that holds the JMH benchmarks of the TownGraphManager queries, run on the
+ * same grid road networks as GraphBenchmark.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TownGraphManagerBenchmark {
+
+	@Param({"1000", "10000", "100000", "1000000"})
+	public int towns;
+
+	private TownGraphManagerOperations manager;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		manager = Operations.create(TownGraphManagerOperations.class, "TownGraphManagerBenchmarkOperations");
+		manager.build(towns, 42);
+	}
+
+	// Returns a random town
+	private int randomTown() {
+		return ThreadLocalRandom.current().nextInt(towns);
+	}
+
+	@Benchmark
+	public Object getPath() {
+		return manager.getPath(randomTown(), randomTown());
+	}
+
+	@Benchmark
+	public Object getTown() {
+		return manager.getTown(randomTown());
+	}
+
+	@Benchmark
+	public Object allRoads() {
+		return manager.allRoads();
+	}
+}
@@ -0,0 +1,20 @@
+package benchmarks;
+
+/**
+ * This is an interface for the TownGraphManager queries measured by
+ * TownGraphManagerBenchmark, implemented by TownGraphManagerBenchmarkOperations in the
+ * default package for the same reason as GraphOperations. Towns are named by number.
+ * @author Daniel Xu
+ * Version: 10/18/2026
+ */
+public interface TownGraphManagerOperations {
+
+	// Fills a manager with the grid of GraphOperations.build
+	void build(int towns, long seed);
+
+	Object getPath(int town1, int town2);
+
+	Object getTown(int town);
+
+	Object allRoads();
+}